@@ -6,12 +6,16 @@
 package com.teamscale.jacoco.agent;
 
 import com.teamscale.jacoco.agent.store.UploadStoreException;
-import com.teamscale.jacoco.agent.store.IXmlStore;
+import com.teamscale.jacoco.agent.store.ICoverageStore;
 import com.teamscale.jacoco.agent.util.Benchmark;
+import com.teamscale.jacoco.agent.util.Metrics;
 import com.teamscale.jacoco.agent.util.Timer;
 import com.teamscale.report.jacoco.JaCoCoXmlReportGenerator;
 import com.teamscale.report.jacoco.dump.Dump;
+import com.teamscale.report.jacoco.dump.ExecutionDataAccumulator;
+import org.jacoco.core.data.ExecutionDataWriter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.Duration;
 
@@ -19,18 +23,44 @@ import static com.teamscale.jacoco.agent.util.LoggingUtils.wrap;
 
 /**
  * A wrapper around the JaCoCo Java agent that automatically triggers a dump and
- * XML conversion based on a time interval.
+ * XML conversion based on a time interval. The conversion and storage of the
+ * dumps happens asynchronously in a {@link DumpPipeline}.
  */
 public class Agent extends AgentBase {
 
-	/** Converts binary data to XML. */
-	private JaCoCoXmlReportGenerator generator;
+	/**
+	 * How long to wait on shutdown for pending dumps to be converted and
+	 * stored.
+	 */
+	private static final Duration SHUTDOWN_DEADLINE = Duration.ofMinutes(1);
+
+	/**
+	 * The first dump is delayed by a random duration of up to the interval
+	 * divided by this value, so agents started at the same time do not dump at
+	 * the same time.
+	 */
+	private static final int INITIAL_JITTER_DIVISOR = 10;
+
+	/** Converts and stores the dumps. */
+	private final DumpPipeline pipeline;
+
+	/**
+	 * Whether to store the binary execution data instead of converting it to
+	 * XML.
+	 */
+	private final boolean shouldStoreBinaryDumps;
+
+	/**
+	 * Accumulates the coverage of all previous dumps to create delta dumps or
+	 * <code>null</code> if full dumps are created.
+	 */
+	private final ExecutionDataAccumulator deltaAccumulator;
 
 	/** Regular dump task. */
 	private Timer timer;
 
-	/** Stores the XML files. */
-	protected final IXmlStore store;
+	/** Stores the XML reports or binary execution data. */
+	protected final ICoverageStore store;
 
 	/** Constructor. */
 	/*package*/ Agent(AgentOptions options) throws IllegalStateException, UploadStoreException {
@@ -39,28 +69,50 @@ public class Agent extends AgentBase {
 		store = options.createStore();
 		logger.info("Storage method: {}", store.describe());
 
-		generator = new JaCoCoXmlReportGenerator(options.getClassDirectoriesOrZips(),
-				options.getLocationIncludeFilter(),
-				options.duplicateClassFileBehavior(), wrap(logger));
+		shouldStoreBinaryDumps = options.shouldStoreBinaryDumps();
+		if (shouldStoreBinaryDumps) {
+			// The class files are only analyzed by the convert tool
+			pipeline = new DumpPipeline(null, store);
+			logger.info("Storing binary execution data. Use the convert tool to convert it to XML.");
+		} else {
+			JaCoCoXmlReportGenerator generator = new JaCoCoXmlReportGenerator(options.getClassDirectoriesOrZips(),
+					options.getLocationIncludeFilter(),
+					options.duplicateClassFileBehavior(), wrap(logger));
+			pipeline = new DumpPipeline(generator, store);
+		}
+		if (options.shouldCreateDeltaDumps()) {
+			deltaAccumulator = new ExecutionDataAccumulator();
+			logger.info("Only dumping coverage that has not been dumped before.");
+		} else {
+			deltaAccumulator = null;
+		}
 
 		if (options.shouldDumpInIntervals()) {
-			timer = new Timer(this::dumpReport, Duration.ofMinutes(options.getDumpIntervalInMinutes()));
+			Duration interval = options.getDumpInterval();
+			Duration maxInitialJitter = interval.dividedBy(INITIAL_JITTER_DIVISOR);
+			timer = new Timer(this::dumpReport, interval, maxInitialJitter);
 			timer.start();
-			logger.info("Dumping every {} minutes.", options.getDumpIntervalInMinutes());
+			logger.info("Dumping every {} (first dump delayed by up to {} more).",
+					Metrics.formatDuration(interval.toNanos()), Metrics.formatDuration(maxInitialJitter.toNanos()));
 		}
 	}
 
 	@Override
 	protected void prepareShutdown() {
-		if (timer != null) {
-			timer.stop();
+		// An interval dump that is still running must finish before the final dump and before the pipeline is shut down
+		if (timer != null && !timer.stop(SHUTDOWN_DEADLINE)) {
+			logger.warn("The running interval dump did not finish within {}s.", SHUTDOWN_DEADLINE.getSeconds());
 		}
 		dumpReport();
+		pipeline.shutdown(SHUTDOWN_DEADLINE);
 	}
 
 	/**
-	 * Dumps the current execution data, converts it and writes it to the
-	 * {@link #store}. Logs any errors, never throws an exception.
+	 * Dumps the current execution data and passes it to the {@link #pipeline},
+	 * which converts it (unless {@link #shouldStoreBinaryDumps}) and writes it
+	 * to the {@link #store}. If {@link #deltaAccumulator} is set, only passes
+	 * on coverage that has not been dumped before. Logs any errors, never
+	 * throws an exception.
 	 */
 	private void dumpReport() {
 		logger.debug("Starting dump");
@@ -73,23 +125,45 @@ public class Agent extends AgentBase {
 		}
 	}
 
-	private void dumpReportUnsafe() {
+	private void dumpReportUnsafe() throws IOException {
+		if (shouldStoreBinaryDumps && deltaAccumulator == null) {
+			byte[] executionData;
+			try (Benchmark benchmark = new Benchmark("Dumping the execution data")) {
+				executionData = controller.dumpAndResetBinary();
+			}
+			pipeline.submitExecutionData(executionData);
+			return;
+		}
+
 		Dump dump;
-		try {
+		try (Benchmark benchmark = new Benchmark("Dumping the execution data")) {
 			dump = controller.dumpAndReset();
 		} catch (JacocoRuntimeController.DumpException e) {
 			logger.error("Dumping failed, retrying later", e);
 			return;
 		}
 
-		String xml;
-		try (Benchmark benchmark = new Benchmark("Generating the XML report")) {
-			xml = generator.convert(dump);
-		} catch (IOException e) {
-			logger.error("Converting binary dump to XML failed", e);
-			return;
+		if (deltaAccumulator != null) {
+			dump = new Dump(dump.info, deltaAccumulator.extractDelta(dump.store));
+			if (dump.store.getContents().isEmpty()) {
+				logger.debug("No new coverage since the last dump");
+				return;
+			}
 		}
 
-		store.store(xml);
+		if (shouldStoreBinaryDumps) {
+			pipeline.submitExecutionData(toExecFormat(dump));
+		} else {
+			pipeline.submit(dump);
+		}
+	}
+
+	/** Serializes the given dump in JaCoCo's binary .exec format. */
+	private static byte[] toExecFormat(Dump dump) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ExecutionDataWriter writer = new ExecutionDataWriter(output);
+		writer.visitSessionInfo(dump.info);
+		dump.store.accept(writer);
+		return output.toByteArray();
 	}
 }
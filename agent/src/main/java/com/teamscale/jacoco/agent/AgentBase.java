@@ -1,6 +1,7 @@
 package com.teamscale.jacoco.agent;
 
 import com.teamscale.jacoco.agent.util.LoggingUtils;
+import com.teamscale.jacoco.agent.util.Metrics;
 import org.jacoco.agent.rt.RT;
 import org.slf4j.Logger;
 
@@ -32,6 +33,7 @@ public abstract class AgentBase {
 		}
 
 		logger.info("Starting JaCoCo agent with options: {}", options.getOriginalOptionsString());
+		Metrics.getInstance().registerMBean(logger);
 	}
 
 	/** Called by the actual premain method once the agent is isolated from the rest of the application. */
@@ -68,6 +70,7 @@ public abstract class AgentBase {
 	private void registerShutdownHook() {
 		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
 			prepareShutdown();
+			logger.info("Agent overhead:{}{}", System.lineSeparator(), Metrics.getInstance().getSummary());
 			logger.info("CQSE JaCoCo agent successfully shut down.");
 			loggingResources.close();
 		}));
@@ -7,7 +7,7 @@ package com.teamscale.jacoco.agent;
 
 import com.teamscale.client.TeamscaleServer;
 import com.teamscale.jacoco.agent.commandline.Validator;
-import com.teamscale.jacoco.agent.store.IXmlStore;
+import com.teamscale.jacoco.agent.store.ICoverageStore;
 import com.teamscale.jacoco.agent.store.UploadStoreException;
 import com.teamscale.jacoco.agent.store.file.TimestampedFileStore;
 import com.teamscale.jacoco.agent.store.upload.azure.AzureFileStorageConfig;
@@ -23,10 +23,13 @@ import org.conqat.lib.commons.collections.PairList;
 import org.conqat.lib.commons.filesystem.FileSystemUtils;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -71,15 +74,25 @@ public class AgentOptions {
 	/* package */ List<Path> additionalMetaDataFiles = new ArrayList<>();
 
 	/**
-	 * The interval in minutes for dumping XML data.
+	 * The interval for dumping XML data.
 	 */
-	/* package */ int dumpIntervalInMinutes = 60;
+	/* package */ Duration dumpInterval = Duration.ofMinutes(60);
 
 	/**
 	 * Whether to ignore duplicate, non-identical class files.
 	 */
 	/* package */ boolean shouldIgnoreDuplicateClassFiles = true;
 
+	/**
+	 * Whether to store the binary execution data instead of converting it to XML in the profiled JVM.
+	 */
+	/* package */ boolean shouldStoreBinaryDumps = false;
+
+	/**
+	 * Whether each dump should only contain the coverage that has not been contained in a previous dump.
+	 */
+	/* package */ boolean shouldCreateDeltaDumps = false;
+
 	/**
 	 * Include patterns to pass on to JaCoCo.
 	 */
@@ -128,7 +141,8 @@ public class AgentOptions {
 	/* package */ Validator getValidator() {
 		Validator validator = new Validator();
 
-		validator.isTrue(!getClassDirectoriesOrZips().isEmpty() || useTestwiseCoverageMode(),
+		validator.isTrue(
+				!getClassDirectoriesOrZips().isEmpty() || useTestwiseCoverageMode() || shouldStoreBinaryDumps,
 				"You must specify at least one directory or zip that contains class files");
 		for (File path : classDirectoriesOrZips) {
 			validator.isTrue(path.exists(), "Path '" + path + "' does not exist");
@@ -159,6 +173,10 @@ public class AgentOptions {
 		validator.isFalse(uploadUrl == null && !additionalMetaDataFiles.isEmpty(),
 				"You specified additional meta data files to be uploaded but did not configure an upload URL");
 
+		validator.isFalse(shouldStoreBinaryDumps && teamscaleServer.hasAllRequiredFieldsSet(),
+				"'binary-dumps' option is incompatible with uploading to Teamscale, as Teamscale only accepts XML" +
+						" coverage. Store the dumps in a file or upload them via 'upload-url' or 'azure-url' instead.");
+
 		validator.isTrue(teamscaleServer.hasAllRequiredFieldsNull() || teamscaleServer.hasAllRequiredFieldsSet(),
 				"You did provide some options prefixed with 'teamscale-', but not all required ones!");
 
@@ -196,22 +214,35 @@ public class AgentOptions {
 		return builder.toString();
 	}
 
-	/** Sets output to none for normal mode and destination file in testwise coverage mode */
+	/**
+	 * Sets output to none, since the agent dumps the execution data itself. In testwise coverage mode, the session ID is
+	 * initially empty, so coverage recorded before the first test is ignored.
+	 */
 	private String getModeSpecificOptions() {
 		if (useTestwiseCoverageMode()) {
-			DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss.SSS", Locale.US);
-			return "sessionid=,destfile=" + new File(outputDirectory.toFile(),
-					"jacoco-" + dateFormat.format(new Date()) + ".exec").getAbsolutePath();
+			return "sessionid=,output=none";
 		} else {
 			return "output=none";
 		}
 	}
 
+	/**
+	 * Returns a new timestamped file in the output directory to which the execution data of the tests is written. The
+	 * file name also contains the process ID, so agents in several JVMs that run in parallel (e.g. Gradle's test forks)
+	 * write to different files.
+	 */
+	public File getNewTestwiseExecFile() {
+		DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss.SSS", Locale.US);
+		String processId = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+		return new File(outputDirectory.toFile(),
+				"jacoco-" + dateFormat.format(new Date()) + "-" + processId + ".exec");
+	}
+
 	/**
 	 * Returns in instance of the agent that was configured. Either an agent with interval based line-coverage dump or
 	 * the HTTP server is used.
 	 */
-	public AgentBase createAgent() throws UploadStoreException {
+	public AgentBase createAgent() throws UploadStoreException, IOException {
 		if (useTestwiseCoverageMode()) {
 			return new TestwiseCoverageAgent(this);
 		} else {
@@ -222,7 +253,7 @@ public class AgentOptions {
 	/**
 	 * Creates the store to use for the coverage XMLs.
 	 */
-	public IXmlStore createStore() throws UploadStoreException {
+	public ICoverageStore createStore() throws UploadStoreException {
 		TimestampedFileStore fileStore = new TimestampedFileStore(outputDirectory);
 		if (uploadUrl != null) {
 			return new HttpUploadStore(fileStore, uploadUrl, additionalMetaDataFiles);
@@ -252,10 +283,20 @@ public class AgentOptions {
 	}
 
 	/**
-	 * @see #dumpIntervalInMinutes
+	 * @see #dumpInterval
 	 */
-	public int getDumpIntervalInMinutes() {
-		return dumpIntervalInMinutes;
+	public Duration getDumpInterval() {
+		return dumpInterval;
+	}
+
+	/** @see #shouldStoreBinaryDumps */
+	public boolean shouldStoreBinaryDumps() {
+		return shouldStoreBinaryDumps;
+	}
+
+	/** @see #shouldCreateDeltaDumps */
+	public boolean shouldCreateDeltaDumps() {
+		return shouldCreateDeltaDumps;
 	}
 
 	/**
@@ -312,6 +353,6 @@ public class AgentOptions {
 
 	/** Whether coverage should be dumped in regular intervals. */
 	public boolean shouldDumpInIntervals() {
-		return dumpIntervalInMinutes > 0;
+		return !dumpInterval.isNegative() && !dumpInterval.isZero();
 	}
 }
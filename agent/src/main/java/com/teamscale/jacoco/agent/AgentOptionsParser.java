@@ -23,11 +23,13 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static java.util.stream.Collectors.joining;
@@ -47,6 +49,9 @@ public class AgentOptionsParser {
 	/** Stand-in for the asterisk operator. */
 	private static final String ASTERISK_REPLACEMENT = "#@";
 
+	/** Pattern for durations, e.g. 30s. The unit defaults to minutes. */
+	private static final Pattern DURATION_PATTERN = Pattern.compile("(-?\\d+)(ms|s|m|h)?");
+
 	/** Logger. */
 	private final ILogger logger;
 
@@ -132,10 +137,10 @@ public class AgentOptionsParser {
 				options.loggingConfig = parsePath(key, value);
 				return true;
 			case "interval":
-				try {
-					options.dumpIntervalInMinutes = Integer.parseInt(value);
-				} catch (NumberFormatException e) {
-					throw new AgentOptionParseException("Non-numeric value given for option 'interval'");
+				options.dumpInterval = parseDuration(key, value);
+				if (options.dumpInterval.isNegative()) {
+					throw new AgentOptionParseException(
+							"Negative value given for option 'interval'. Use 0 to only dump coverage at JVM shutdown");
 				}
 				return true;
 			case "out":
@@ -157,6 +162,12 @@ public class AgentOptionsParser {
 			case "ignore-duplicates":
 				options.shouldIgnoreDuplicateClassFiles = Boolean.parseBoolean(value);
 				return true;
+			case "binary-dumps":
+				options.shouldStoreBinaryDumps = Boolean.parseBoolean(value);
+				return true;
+			case "delta-dumps":
+				options.shouldCreateDeltaDumps = Boolean.parseBoolean(value);
+				return true;
 			case "includes":
 				options.jacocoIncludes = value.replaceAll(";", ":");
 				return true;
@@ -424,6 +435,33 @@ public class AgentOptionsParser {
 		return HttpUrl.parse(value);
 	}
 
+	/**
+	 * Parses the given value as a duration with an optional unit (ms, s, m or h), e.g. "30s". Values without unit are
+	 * interpreted as minutes.
+	 */
+	private static Duration parseDuration(String optionName, String value) throws AgentOptionParseException {
+		Matcher matcher = DURATION_PATTERN.matcher(value.trim());
+		if (!matcher.matches()) {
+			throw new AgentOptionParseException("Invalid duration '" + value + "' given for option '" + optionName
+					+ "'. Expected a number with an optional unit ms, s, m or h, e.g. 30s");
+		}
+
+		long amount;
+		try {
+			amount = Long.parseLong(matcher.group(1));
+		} catch (NumberFormatException e) {
+			throw new AgentOptionParseException("Too large duration given for option '" + optionName + "'", e);
+		}
+		String unit = matcher.group(2);
+		if ("ms".equals(unit)) {
+			return Duration.ofMillis(amount);
+		} else if ("s".equals(unit)) {
+			return Duration.ofSeconds(amount);
+		} else if ("h".equals(unit)) {
+			return Duration.ofHours(amount);
+		}
+		return Duration.ofMinutes(amount);
+	}
 
 	/**
 	 * Parses the the string representation of a commit to a  {@link CommitDescriptor} object.
@@ -0,0 +1,130 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright (c) 2009-2019 CQSE GmbH                                        |
+|                                                                          |
++-------------------------------------------------------------------------*/
+package com.teamscale.jacoco.agent;
+
+import com.teamscale.jacoco.agent.store.ExecCoverageReport;
+import com.teamscale.jacoco.agent.store.ICoverageReport;
+import com.teamscale.jacoco.agent.store.ICoverageStore;
+import com.teamscale.jacoco.agent.store.XmlCoverageReport;
+import com.teamscale.jacoco.agent.util.Benchmark;
+import com.teamscale.jacoco.agent.util.BlockingExecutors;
+import com.teamscale.jacoco.agent.util.LoggingUtils;
+import com.teamscale.report.jacoco.JaCoCoXmlReport;
+import com.teamscale.report.jacoco.JaCoCoXmlReportGenerator;
+import com.teamscale.report.jacoco.dump.Dump;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Converts and stores dumps asynchronously, so a slow conversion or upload does not delay the next dump.
+ * <p>
+ * Each stage (conversion, storing) runs on its own daemon thread and is fed by a bounded queue. If a queue is full,
+ * the previous stage blocks until the next stage has caught up. This limits the number of dumps and reports held in
+ * memory. The conversion stage analyzes the class files and coverage. Rendering the XML and compressing it happen as
+ * part of storing, since the store streams the report to its destination.
+ */
+/* package */ class DumpPipeline {
+
+	/** The number of dumps or reports that may wait for each stage in addition to the one being processed. */
+	private static final int QUEUE_CAPACITY = 1;
+
+	/** The logger. */
+	private final Logger logger = LoggingUtils.getLogger(this);
+
+	/**
+	 * Analyzes the binary data for the XML report or null if only binary execution data is stored, i.e. only
+	 * {@link #submitExecutionData(byte[])} is used.
+	 */
+	private final JaCoCoXmlReportGenerator generator;
+
+	/** Stores the XML reports or binary execution data. */
+	private final ICoverageStore store;
+
+	/** Runs the conversion stage. */
+	private final ThreadPoolExecutor conversionExecutor = BlockingExecutors
+			.newSingleThreadExecutor("Coverage conversion", QUEUE_CAPACITY);
+
+	/** Runs the storing stage. */
+	private final ThreadPoolExecutor storeExecutor = BlockingExecutors
+			.newSingleThreadExecutor("Coverage storage", QUEUE_CAPACITY);
+
+	/** Constructor. */
+	/* package */ DumpPipeline(JaCoCoXmlReportGenerator generator, ICoverageStore store) {
+		this.generator = generator;
+		this.store = store;
+	}
+
+	/**
+	 * Schedules the conversion and storage of the given dump. Blocks while the conversion stage is busy and has
+	 * another dump waiting. Must only be called if a {@link #generator} was given.
+	 */
+	/* package */ void submit(Dump dump) {
+		if (generator == null) {
+			throw new IllegalStateException("Cannot convert dumps to XML without a report generator");
+		}
+		conversionExecutor.execute(() -> convert(dump));
+	}
+
+	/** Analyzes the given dump and schedules the storage of the report. Logs any errors. */
+	private void convert(Dump dump) {
+		JaCoCoXmlReport report;
+		try (Benchmark benchmark = new Benchmark("Analyzing the coverage")) {
+			report = generator.createReport(dump);
+		} catch (IOException e) {
+			logger.error("Converting binary dump to XML failed", e);
+			return;
+		} catch (Throwable t) {
+			// we want to catch anything in order to avoid crashing the whole system under test
+			logger.error("Converting binary dump to XML failed with an exception", t);
+			return;
+		}
+
+		try {
+			storeExecutor.execute(() -> store(new XmlCoverageReport(report)));
+		} catch (RejectedExecutionException e) {
+			logger.error("Failed to store the XML report", e);
+		}
+	}
+
+	/**
+	 * Schedules the storage of the given binary execution data without converting it. Blocks while the storing stage
+	 * is busy and has another report waiting.
+	 */
+	/* package */ void submitExecutionData(byte[] executionData) {
+		storeExecutor.execute(() -> store(new ExecCoverageReport(executionData)));
+	}
+
+	/** Stores the given report. Logs any errors. */
+	private void store(ICoverageReport report) {
+		try {
+			store.store(report);
+		} catch (Throwable t) {
+			// we want to catch anything in order to avoid crashing the whole system under test
+			logger.error("Storing the coverage report failed with an exception", t);
+		}
+	}
+
+	/**
+	 * Stops accepting new dumps and waits until all submitted dumps have been converted and stored or the given
+	 * deadline has passed. Dumps that have not been processed until then are lost.
+	 */
+	/* package */ void shutdown(Duration deadline) {
+		long deadlineNanos = System.nanoTime() + deadline.toNanos();
+		conversionExecutor.shutdown();
+		boolean drained = BlockingExecutors.awaitTermination(conversionExecutor, deadlineNanos);
+		storeExecutor.shutdown();
+		drained &= BlockingExecutors.awaitTermination(storeExecutor, deadlineNanos);
+		if (!drained) {
+			int lostDumps = conversionExecutor.shutdownNow().size() + storeExecutor.shutdownNow().size();
+			logger.warn("Failed to convert and store all coverage within {}s. Discarding {} waiting dumps.",
+					deadline.getSeconds(), lostDumps);
+		}
+	}
+}
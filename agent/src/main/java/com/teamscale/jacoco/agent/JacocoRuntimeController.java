@@ -8,8 +8,11 @@ package com.teamscale.jacoco.agent;
 import com.teamscale.report.jacoco.dump.Dump;
 import org.jacoco.agent.rt.IAgent;
 import org.jacoco.agent.rt.RT;
+import org.jacoco.agent.rt.internal_1f1cc91.core.runtime.RuntimeData;
+import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataReader;
 import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.ISessionInfoVisitor;
 import org.jacoco.core.data.SessionInfo;
 
@@ -40,6 +43,12 @@ public class JacocoRuntimeController {
 	/** JaCoCo's {@link RT} agent instance */
 	private final IAgent agent;
 
+	/**
+	 * The time of the last reset. JaCoCo's runtime only tracks the time of
+	 * complete resets, but {@link #reset()} only resets classes with hits.
+	 */
+	private volatile long lastResetTimestamp = 0;
+
 	/** Constructor. */
 	public JacocoRuntimeController(IAgent agent) {
 		this.agent = agent;
@@ -52,41 +61,101 @@ public class JacocoRuntimeController {
 	 *                       should simply be retried later if this ever happens.
 	 */
 	public Dump dumpAndReset() throws DumpException {
-		byte[] binaryData = agent.getExecutionData(true);
+		ExecutionDataStore store = new ExecutionDataStore();
+		SessionInfoVisitor sessionInfoVisitor = new SessionInfoVisitor();
+		dumpAndReset(store, sessionInfoVisitor);
+		return new Dump(sessionInfoVisitor.sessionInfo, store);
+	}
 
-		try (ByteArrayInputStream inputStream = new ByteArrayInputStream(binaryData)) {
-			ExecutionDataReader reader = new ExecutionDataReader(inputStream);
+	/**
+	 * Passes the session info and the execution data of all classes with hits
+	 * to the given visitors and resets it.
+	 * <p>
+	 * If the agent runs in this JVM, the execution data is read directly from
+	 * the runtime instead of serializing and parsing it again, which saves
+	 * memory for large applications. The visitors receive copies of the probe
+	 * arrays. Only the probes of classes with hits are copied and reset, see
+	 * {@link #reset()}.
+	 *
+	 * @throws DumpException if dumping fails. This should never happen in real life. Dumping
+	 *                       should simply be retried later if this ever happens.
+	 */
+	public void dumpAndReset(IExecutionDataVisitor executionDataVisitor,
+							 ISessionInfoVisitor sessionInfoVisitor) throws DumpException {
+		RuntimeData runtimeData = getRuntimeData();
+		if (runtimeData == null) {
+			readBinaryData(dumpAndResetBinary(), executionDataVisitor, sessionInfoVisitor);
+			return;
+		}
 
-			ExecutionDataStore store = new ExecutionDataStore();
-			reader.setExecutionDataVisitor(store::put);
+		runtimeData.collect(data -> {
+			// Same as the ExecutionDataWriter, which omits classes without hits
+			if (data.hasHits()) {
+				executionDataVisitor.visitClassExecution(
+						new ExecutionData(data.getId(), data.getName(), data.getProbes().clone()));
+				data.reset();
+			}
+		}, info -> {
+			long startTimestamp = Math.max(info.getStartTimeStamp(), lastResetTimestamp);
+			sessionInfoVisitor.visitSessionInfo(new SessionInfo(info.getId(), startTimestamp, info.getDumpTimeStamp()));
+			lastResetTimestamp = info.getDumpTimeStamp();
+		}, false);
+	}
 
-			SessionInfoVisitor sessionInfoVisitor = new SessionInfoVisitor();
-			reader.setSessionInfoVisitor(sessionInfoVisitor);
+	/**
+	 * Returns the data of JaCoCo's runtime or <code>null</code> if the agent does not run in this JVM, e.g. in
+	 * tests.
+	 */
+	private RuntimeData getRuntimeData() {
+		if (agent instanceof org.jacoco.agent.rt.internal_1f1cc91.Agent) {
+			return ((org.jacoco.agent.rt.internal_1f1cc91.Agent) agent).getData();
+		}
+		return null;
+	}
 
+	/** Reads the given execution data in JaCoCo's binary .exec format into the given visitors. */
+	private static void readBinaryData(byte[] binaryData, IExecutionDataVisitor executionDataVisitor,
+									   ISessionInfoVisitor sessionInfoVisitor) throws DumpException {
+		try (ByteArrayInputStream inputStream = new ByteArrayInputStream(binaryData)) {
+			ExecutionDataReader reader = new ExecutionDataReader(inputStream);
+			reader.setExecutionDataVisitor(executionDataVisitor);
+			reader.setSessionInfoVisitor(sessionInfoVisitor);
 			reader.read();
-			return new Dump(sessionInfoVisitor.sessionInfo, store);
 		} catch (IOException e) {
 			throw new DumpException("should never happen for the ByteArrayInputStream", e);
 		}
 	}
 
 	/**
-	 * Dumps execution data to a file and resets it.
-	 *
-	 * @throws DumpException if dumping fails. This should never happen in real life. Dumping
-	 *                       should simply be retried later if this ever happens.
+	 * Dumps execution data in JaCoCo's binary .exec format, including the
+	 * session info, and resets it.
 	 */
-	public void dump() throws DumpException {
-		try {
-			agent.dump(true);
-		} catch (IOException e) {
-			throw new DumpException(e.getMessage(), e);
-		}
+	public byte[] dumpAndResetBinary() {
+		return agent.getExecutionData(true);
 	}
 
-	/** Resets already collected coverage. */
+	/**
+	 * Resets already collected coverage.
+	 * <p>
+	 * If the agent runs in this JVM, only the probes of classes with hits are
+	 * reset. JaCoCo's probes are plain arrays that the instrumented code writes
+	 * to, so every loaded class must still be checked for hits, but classes
+	 * without hits are only read. Since a test usually only touches a small
+	 * fraction of the loaded classes, this avoids writing the probes of all
+	 * other classes at every test start and end.
+	 */
 	public void reset() {
-		agent.reset();
+		RuntimeData runtimeData = getRuntimeData();
+		if (runtimeData == null) {
+			agent.reset();
+			return;
+		}
+
+		runtimeData.collect(data -> {
+			if (data.hasHits()) {
+				data.reset();
+			}
+		}, info -> lastResetTimestamp = info.getDumpTimeStamp(), false);
 	}
 
 	/** Returns the current sessionId. */
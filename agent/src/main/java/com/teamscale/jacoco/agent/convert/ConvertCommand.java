@@ -62,7 +62,7 @@ public class ConvertCommand implements ICommand {
 
 	/** The directory to write the XML traces to. */
 	@Parameter(names = {"--out", "-o"}, required = true, description = ""
-			+ "The file to write the generated XML report to.")
+			+ "The file to write the generated XML report to. In batch mode, the directory to write the reports to.")
 	/* package */ String outputFile = "";
 
 	/** Whether to ignore duplicate, non-identical class files. */
@@ -71,11 +71,48 @@ public class ConvertCommand implements ICommand {
 			+ " This is discouraged and may result in incorrect coverage files. Defaults to false.")
 	/* package */ boolean shouldIgnoreDuplicateClassFiles = false;
 
+	/** Whether to convert each .exec file to its own XML report. */
+	@Parameter(names = {"--batch"}, required = false, arity = 0, description = ""
+			+ "Whether to convert each .exec file to its own XML report in the output directory (--out) instead of"
+			+ " merging all files into one report. Use this to convert the binary dumps of an agent started with"
+			+ " binary-dumps=true.")
+	/* package */ boolean shouldConvertInBatch = false;
+
+	/** Whether each report of a batch conversion should contain the coverage of all previous files. */
+	@Parameter(names = {"--accumulate"}, required = false, arity = 0, description = ""
+			+ "In batch mode, whether each report should contain the merged coverage of all .exec files up to the"
+			+ " converted one, ordered by file name. Use this to restore the total coverage at each dump from the"
+			+ " dumps of an agent started with delta-dumps=true.")
+	/* package */ boolean shouldAccumulate = false;
+
 	/** Whether to ignore duplicate, non-identical class files. */
 	@Parameter(names = {"--testwise-coverage", "-t"}, required = false, arity = 0, description = "Whether testwise " +
 			"coverage or jacoco coverage should be generated.")
 	/* package */ boolean shouldGenerateTestwiseCoverage = false;
 
+	/** The number of threads to use for the testwise coverage conversion. */
+	@Parameter(names = {"--parallelism", "-p"}, required = false, description = ""
+			+ "The number of threads to use for generating testwise coverage. Defaults to 1.")
+	/* package */ int parallelism = 1;
+
+	/** File in which the analysis results of class files are cached across conversions. */
+	@Parameter(names = {"--probes-cache"}, required = false, description = ""
+			+ "File in which the analyzed class files are cached across testwise coverage conversions, so only changed"
+			+ " class files need to be analyzed again. The cache is stored in files named like the given file followed"
+			+ " by a generation number. May be shared by concurrent conversions. Defaults to no caching.")
+	/* package */ String probesCacheFile = null;
+
+	/** Whether to pretty print the generated testwise coverage report. */
+	@Parameter(names = {"--pretty-print"}, required = false, arity = 1, description = ""
+			+ "Whether to indent the generated testwise coverage report. Disabling this reduces the report size."
+			+ " Defaults to true.")
+	/* package */ boolean shouldPrettyPrint = true;
+
+	/** Whether to compress the generated testwise coverage report. */
+	@Parameter(names = {"--gzip"}, required = false, arity = 0, description = ""
+			+ "Whether to compress the generated testwise coverage report with gzip.")
+	/* package */ boolean shouldGzip = false;
+
 	/** @see #classDirectoriesOrZips */
 	public List<File> getClassDirectoriesOrZips() {
 		return CollectionUtils.map(classDirectoriesOrZips, File::new);
@@ -126,6 +163,39 @@ public class ConvertCommand implements ICommand {
 		this.shouldIgnoreDuplicateClassFiles = shouldIgnoreDuplicateClassFiles;
 	}
 
+	/** @see #shouldConvertInBatch */
+	public boolean shouldConvertInBatch() {
+		return shouldConvertInBatch;
+	}
+
+	/** @see #shouldAccumulate */
+	public boolean shouldAccumulate() {
+		return shouldAccumulate;
+	}
+
+	/** @see #parallelism */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/** @see #probesCacheFile */
+	public File getProbesCacheFile() {
+		if (probesCacheFile == null) {
+			return null;
+		}
+		return new File(probesCacheFile);
+	}
+
+	/** @see #shouldPrettyPrint */
+	public boolean shouldPrettyPrint() {
+		return shouldPrettyPrint;
+	}
+
+	/** @see #shouldGzip */
+	public boolean shouldGzip() {
+		return shouldGzip;
+	}
+
 	/** Makes sure the arguments are valid. */
 	@Override
 	public Validator validate() {
@@ -138,14 +208,23 @@ public class ConvertCommand implements ICommand {
 			validator.isTrue(path.canRead(), "Path '" + path + "' is not readable");
 		}
 
+		validator.isTrue(parallelism >= 1, "The parallelism must be at least 1");
+
 		for (File inputFile : getInputFiles()) {
 			validator.isTrue(inputFile.exists() && inputFile.canRead(),
 					"Cannot read the input file " + inputFile);
 		}
 
+		validator.isFalse(shouldConvertInBatch && shouldGenerateTestwiseCoverage,
+				"Batch conversion is not supported for testwise coverage");
+		validator.isFalse(shouldAccumulate && !shouldConvertInBatch, "--accumulate requires --batch");
+
 		validator.ensure(() -> {
 			CCSMAssert.isFalse(StringUtils.isEmpty(outputFile), "You must specify an output file");
 			File outputDir = getOutputFile().getAbsoluteFile().getParentFile();
+			if (shouldConvertInBatch) {
+				outputDir = getOutputFile().getAbsoluteFile();
+			}
 			FileSystemUtils.ensureDirectoryExists(outputDir);
 			CCSMAssert.isTrue(outputDir.canWrite(), "Path '" + outputDir + "' is not writable");
 		});
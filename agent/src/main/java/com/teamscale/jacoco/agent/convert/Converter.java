@@ -7,24 +7,29 @@ import com.teamscale.report.EDuplicateClassFileBehavior;
 import com.teamscale.report.ReportUtils;
 import com.teamscale.report.jacoco.JaCoCoXmlReportGenerator;
 import com.teamscale.report.jacoco.dump.Dump;
+import com.teamscale.report.jacoco.dump.ExecutionDataAccumulator;
 import com.teamscale.report.testwise.ETestArtifactFormat;
+import com.teamscale.report.testwise.TestwiseCoverageReportWriter;
 import com.teamscale.report.testwise.jacoco.JaCoCoTestwiseReportGenerator;
 import com.teamscale.report.testwise.jacoco.cache.CoverageGenerationException;
 import com.teamscale.report.testwise.model.TestExecution;
 import com.teamscale.report.testwise.model.TestwiseCoverage;
-import com.teamscale.report.testwise.model.TestwiseCoverageReport;
 import com.teamscale.report.testwise.model.builder.TestwiseCoverageReportBuilder;
 import com.teamscale.report.util.ClasspathWildcardIncludeFilter;
 import com.teamscale.report.util.CommandLineLogger;
 import com.teamscale.report.util.ILogger;
 import org.conqat.lib.commons.filesystem.FileSystemUtils;
-import org.jacoco.core.data.ExecutionDataStore;
-import org.jacoco.core.data.SessionInfo;
+import org.conqat.lib.commons.string.StringUtils;
 import org.jacoco.core.tools.ExecFileLoader;
 import org.slf4j.Logger;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import static com.teamscale.jacoco.agent.util.LoggingUtils.wrap;
@@ -40,19 +45,14 @@ public class Converter {
 		this.arguments = arguments;
 	}
 
-	/** Converts one .exec binary coverage file to XML. */
+	/**
+	 * Converts .exec binary coverage files to XML. Either merges all files into one report or, in batch mode, converts
+	 * each file to its own report.
+	 */
 	public void runJaCoCoReportGeneration() throws IOException {
 		List<File> jacocoExecutionDataList = ReportUtils
 				.listFiles(ETestArtifactFormat.JACOCO, arguments.getInputFiles());
 
-		ExecFileLoader loader = new ExecFileLoader();
-		for (File jacocoExecutionData : jacocoExecutionDataList) {
-			loader.load(jacocoExecutionData);
-		}
-
-		SessionInfo sessionInfo = loader.getSessionInfoStore().getMerged("merged");
-		ExecutionDataStore executionDataStore = loader.getExecutionDataStore();
-
 		Logger logger = LoggingUtils.getLogger(this);
 		EDuplicateClassFileBehavior duplicateClassFileBehavior;
 		if (arguments.shouldIgnoreDuplicateClassFiles()) {
@@ -64,9 +64,50 @@ public class Converter {
 				getWildcardIncludeExcludeFilter(), duplicateClassFileBehavior,
 				wrap(logger));
 
+		if (!arguments.shouldConvertInBatch()) {
+			writeXmlReport(generator, loadDump(jacocoExecutionDataList, "merged"), arguments.getOutputFile());
+			return;
+		}
+
+		ExecutionDataAccumulator accumulator = null;
+		if (arguments.shouldAccumulate()) {
+			accumulator = new ExecutionDataAccumulator();
+			// The agent names the files by their timestamp, so this restores the order of the dumps
+			jacocoExecutionDataList.sort(Comparator.comparing(File::getName));
+		}
+
+		// The generator is reused, so class files without coverage are only analyzed once for all dumps
+		for (File jacocoExecutionData : jacocoExecutionDataList) {
+			String name = StringUtils.removeLastPart(jacocoExecutionData.getName(), '.');
+			File outputFile = new File(arguments.getOutputFile(), name + ".xml");
+			logger.info("Converting {} to {}", jacocoExecutionData, outputFile);
+
+			Dump dump = loadDump(Collections.singletonList(jacocoExecutionData), name);
+			if (accumulator != null) {
+				accumulator.add(dump.store);
+				dump = new Dump(dump.info, accumulator.getAccumulated());
+			}
+			writeXmlReport(generator, dump, outputFile);
+		}
+	}
+
+	/** Loads and merges the given .exec files. */
+	private static Dump loadDump(List<File> jacocoExecutionDataList, String sessionId) throws IOException {
+		ExecFileLoader loader = new ExecFileLoader();
+		for (File jacocoExecutionData : jacocoExecutionDataList) {
+			loader.load(jacocoExecutionData);
+		}
+		return new Dump(loader.getSessionInfoStore().getMerged(sessionId), loader.getExecutionDataStore());
+	}
+
+	/** Writes the given dump as XML report to the given file. */
+	private static void writeXmlReport(JaCoCoXmlReportGenerator generator, Dump dump,
+									   File outputFile) throws IOException {
 		try (Benchmark benchmark = new Benchmark("Generating the XML report")) {
-			String xml = generator.convert(new Dump(sessionInfo, executionDataStore));
-			FileSystemUtils.writeFileUTF8(arguments.getOutputFile(), xml);
+			FileSystemUtils.ensureParentDirectoryExists(outputFile);
+			try (OutputStream output = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+				generator.convertToReport(output, dump);
+			}
 		}
 	}
 
@@ -81,22 +122,24 @@ public class Converter {
 				.listFiles(ETestArtifactFormat.JACOCO, arguments.getInputFiles());
 		ILogger logger = new CommandLineLogger();
 
-		JaCoCoTestwiseReportGenerator generator = new JaCoCoTestwiseReportGenerator(
+		try (JaCoCoTestwiseReportGenerator generator = new JaCoCoTestwiseReportGenerator(
 				arguments.getClassDirectoriesOrZips(),
 				getWildcardIncludeExcludeFilter(),
 				EDuplicateClassFileBehavior.WARN,
+				arguments.getParallelism(),
+				arguments.getProbesCacheFile(),
 				logger
-		);
-
-		try (Benchmark benchmark = new Benchmark("Generating the testwise coverage report")) {
+		); Benchmark benchmark = new Benchmark("Generating the testwise coverage report")) {
 			TestwiseCoverage coverage = generator.convert(jacocoExecutionDataList);
 			logger.info(
 					"Merging report with " + testDetails.size() + " Details/" + coverage.getTests()
 							.size() + " Coverage/" + testExecutions.size() + " Results");
 
-			TestwiseCoverageReport report = TestwiseCoverageReportBuilder
-					.createFrom(testDetails, coverage.getTests(), testExecutions);
-			ReportUtils.writeReportToFile(arguments.getOutputFile(), report);
+			try (TestwiseCoverageReportWriter writer = new TestwiseCoverageReportWriter(arguments.getOutputFile(),
+					arguments.shouldPrettyPrint(), arguments.shouldGzip())) {
+				TestwiseCoverageReportBuilder.writeTo(writer, testDetails, coverage.getTests(), testExecutions);
+				writer.finish();
+			}
 		}
 	}
 
@@ -0,0 +1,31 @@
+package com.teamscale.jacoco.agent.store;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Binary execution data in JaCoCo's .exec format, including the session info. Can be converted to XML later with the
+ * convert tool.
+ */
+public class ExecCoverageReport implements ICoverageReport {
+
+	/** The execution data as returned by the JaCoCo runtime. */
+	private final byte[] executionData;
+
+	/** Constructor. */
+	public ExecCoverageReport(byte[] executionData) {
+		this.executionData = executionData;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getFileExtension() {
+		return "exec";
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void writeTo(OutputStream output) throws IOException {
+		output.write(executionData);
+	}
+}
@@ -0,0 +1,15 @@
+package com.teamscale.jacoco.agent.store;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Coverage that can be written to a file by an {@link ICoverageStore}, e.g. an XML report or binary execution data. */
+public interface ICoverageReport {
+
+	/** The extension of files containing this report, e.g. "xml". */
+	String getFileExtension();
+
+	/** Writes the report to the given stream. Does not close the stream. May be called any number of times. */
+	void writeTo(OutputStream output) throws IOException;
+
+}
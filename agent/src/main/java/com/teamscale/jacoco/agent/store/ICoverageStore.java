@@ -0,0 +1,15 @@
+package com.teamscale.jacoco.agent.store;
+
+/** Stores coverage reports permanently, i.e. XML reports or binary execution data. */
+public interface ICoverageStore {
+
+	/**
+	 * Stores the given report permanently. Implementations should stream the report to its destination rather than
+	 * rendering it into memory.
+	 */
+	void store(ICoverageReport report);
+
+	/** Human-readable description of the store. */
+	String describe();
+
+}
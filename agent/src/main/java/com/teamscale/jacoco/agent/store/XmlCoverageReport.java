@@ -0,0 +1,30 @@
+package com.teamscale.jacoco.agent.store;
+
+import com.teamscale.report.jacoco.JaCoCoXmlReport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** A JaCoCo XML report, which is rendered while it is written. */
+public class XmlCoverageReport implements ICoverageReport {
+
+	/** The report. */
+	private final JaCoCoXmlReport report;
+
+	/** Constructor. */
+	public XmlCoverageReport(JaCoCoXmlReport report) {
+		this.report = report;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getFileExtension() {
+		return "xml";
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void writeTo(OutputStream output) throws IOException {
+		report.writeTo(output);
+	}
+}
@@ -1,20 +1,24 @@
 package com.teamscale.jacoco.agent.store.file;
 
-import com.teamscale.jacoco.agent.store.IXmlStore;
+import com.teamscale.jacoco.agent.store.ICoverageReport;
+import com.teamscale.jacoco.agent.store.ICoverageStore;
 import com.teamscale.jacoco.agent.util.Benchmark;
 import com.teamscale.jacoco.agent.util.LoggingUtils;
 import org.conqat.lib.commons.filesystem.FileSystemUtils;
 import org.slf4j.Logger;
 
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
 
 /**
- * Writes XMLs to files in a folder. The files are timestamped with the time of
+ * Writes coverage reports to files in a folder. The files are timestamped with the time of
  * writing the trace to make each file reasonably unique so they don't overwrite
  * each other.
  */
-public class TimestampedFileStore implements IXmlStore {
+public class TimestampedFileStore implements ICoverageStore {
 
 	/** The logger. */
 	private final Logger logger = LoggingUtils.getLogger(this);
@@ -34,14 +38,17 @@ public class TimestampedFileStore implements IXmlStore {
 
 	/** {@inheritDoc} */
 	@Override
-	public void store(String xml) {
+	public void store(ICoverageReport report) {
 		try (Benchmark benchmark = new Benchmark("Writing the JaCoCo report to a file")) {
 			long currentTime = System.currentTimeMillis();
-			Path outputPath = outputDirectory.resolve("jacoco-" + currentTime + ".xml");
+			Path outputPath = outputDirectory.resolve("jacoco-" + currentTime + "." + report.getFileExtension());
 			try {
-				FileSystemUtils.writeFile(outputPath.toFile(), xml);
+				FileSystemUtils.ensureDirectoryExists(outputDirectory.toFile());
+				try (OutputStream output = new BufferedOutputStream(new FileOutputStream(outputPath.toFile()))) {
+					report.writeTo(output);
+				}
 			} catch (IOException e) {
-				logger.error("Failed to write XML to {}", outputPath, e);
+				logger.error("Failed to write coverage to {}", outputPath, e);
 			}
 		}
 	}
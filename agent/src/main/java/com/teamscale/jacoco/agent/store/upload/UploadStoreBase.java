@@ -1,27 +1,29 @@
 package com.teamscale.jacoco.agent.store.upload;
 
-import com.teamscale.jacoco.agent.store.IXmlStore;
+import com.teamscale.jacoco.agent.store.ICoverageReport;
+import com.teamscale.jacoco.agent.store.ICoverageStore;
 import com.teamscale.jacoco.agent.store.UploadStoreException;
 import com.teamscale.jacoco.agent.store.file.TimestampedFileStore;
 import com.teamscale.jacoco.agent.util.Benchmark;
 import com.teamscale.jacoco.agent.util.LoggingUtils;
 import okhttp3.HttpUrl;
 import okhttp3.ResponseBody;
-import org.conqat.lib.commons.filesystem.FileSystemUtils;
 import org.slf4j.Logger;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 /** Base class for uploading the coverage zip to a provided url */
-public abstract class UploadStoreBase<T> implements IXmlStore {
+public abstract class UploadStoreBase<T> implements ICoverageStore {
 
 	/** The logger. */
 	protected final Logger logger = LoggingUtils.getLogger(this);
@@ -51,33 +53,33 @@ public abstract class UploadStoreBase<T> implements IXmlStore {
 	/** Returns the API for creating request to the http store */
 	protected abstract T getApi(Retrofit retrofit);
 
-	/** Uploads the coverage zip to the server */
-	protected abstract Response<ResponseBody> uploadCoverageZip(byte[] zipFileBytes) throws IOException, UploadStoreException;
+	/** Uploads the coverage zip file to the server */
+	protected abstract Response<ResponseBody> uploadCoverageZip(File zipFile) throws IOException, UploadStoreException;
 
 	@Override
-	public void store(String xml) {
+	public void store(ICoverageReport report) {
 		try (Benchmark benchmark = new Benchmark("Uploading report via HTTP")) {
-			if (!tryUpload(xml)) {
+			if (!tryUpload(report)) {
 				logger.warn("Storing failed upload in {}", failureStore.getOutputDirectory());
-				failureStore.store(xml);
+				failureStore.store(report);
 			}
 		}
 	}
 
 	/** Performs the upload and returns <code>true</code> if successful. */
-	protected boolean tryUpload(String xml) {
+	protected boolean tryUpload(ICoverageReport report) {
 		logger.debug("Uploading coverage to {}", uploadUrl);
 
-		byte[] zipFileBytes;
-		try {
-			zipFileBytes = createZipFile(xml);
+		File zipFile;
+		try (Benchmark benchmark = new Benchmark("Creating the coverage zip")) {
+			zipFile = createZipFile(report);
 		} catch (IOException e) {
 			logger.error("Failed to compile coverage zip file for upload to {}", uploadUrl, e);
 			return false;
 		}
 
 		try {
-			Response<ResponseBody> response = uploadCoverageZip(zipFileBytes);
+			Response<ResponseBody> response = uploadCoverageZip(zipFile);
 			if (response.isSuccessful()) {
 				return true;
 			}
@@ -96,39 +98,46 @@ public abstract class UploadStoreBase<T> implements IXmlStore {
 		} catch (UploadStoreException e) {
 			logger.error("Failed to upload coverage to {}. The configuration is probably incorrect", uploadUrl, e);
 			return false;
+		} finally {
+			deleteZipFile(zipFile);
 		}
 	}
 
 	/**
-	 * Creates the zip file to upload which includes the given coverage XML and all
-	 * {@link #additionalMetaDataFiles}.
+	 * Creates a temporary zip file to upload which includes the given coverage report and all
+	 * {@link #additionalMetaDataFiles}. The report is streamed into the zip, so it is never held in memory as a
+	 * whole.
 	 */
-	private byte[] createZipFile(String xml) throws IOException {
-		try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
-			try (ZipOutputStream zipOutputStream = new ZipOutputStream(byteArrayOutputStream);
-				 OutputStreamWriter writer = new OutputStreamWriter(zipOutputStream, "UTF-8")) {
-				fillZipFile(zipOutputStream, writer, xml);
-			}
-			return byteArrayOutputStream.toByteArray();
+	private File createZipFile(ICoverageReport report) throws IOException {
+		File zipFile = File.createTempFile("jacoco-coverage", ".zip");
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(
+				new BufferedOutputStream(new FileOutputStream(zipFile)))) {
+			fillZipFile(zipOutputStream, report);
+		} catch (IOException e) {
+			deleteZipFile(zipFile);
+			throw e;
 		}
+		return zipFile;
 	}
 
 	/**
-	 * Fills the upload zip file with the given coverage XML and all
+	 * Fills the upload zip file with the given coverage report and all
 	 * {@link #additionalMetaDataFiles}.
 	 */
-	private void fillZipFile(ZipOutputStream zipOutputStream, OutputStreamWriter writer, String xml)
-			throws IOException {
-		zipOutputStream.putNextEntry(new ZipEntry("coverage.xml"));
-		writer.write(xml);
-
-		// We flush the writer, but don't close it here, because closing the writer
-		// would also close the zipOutputStream, making further writes impossible.
-		writer.flush();
+	private void fillZipFile(ZipOutputStream zipOutputStream, ICoverageReport report) throws IOException {
+		zipOutputStream.putNextEntry(new ZipEntry("coverage." + report.getFileExtension()));
+		report.writeTo(zipOutputStream);
 
 		for (Path additionalFile : additionalMetaDataFiles) {
 			zipOutputStream.putNextEntry(new ZipEntry(additionalFile.getFileName().toString()));
-			zipOutputStream.write(FileSystemUtils.readFileBinary(additionalFile.toFile()));
+			Files.copy(additionalFile, zipOutputStream);
+		}
+	}
+
+	/** Deletes the given temporary zip file. Logs a warning if that fails. */
+	private void deleteZipFile(File zipFile) {
+		if (!zipFile.delete()) {
+			logger.warn("Failed to delete temporary coverage zip {}", zipFile);
 		}
 	}
 }
@@ -16,6 +16,7 @@ import retrofit2.http.Multipart;
 import retrofit2.http.POST;
 import retrofit2.http.Part;
 
+import java.io.File;
 import java.io.IOException;
 
 /** {@link Retrofit} API specification for the {@link HttpUploadStore}. */
@@ -28,10 +29,10 @@ public interface IHttpUploadApi {
 
 	/**
 	 * Convenience method to perform an {@link #upload(okhttp3.MultipartBody.Part)}
-	 * call for a coverage zip.
+	 * call for a coverage zip. The file is streamed to the server.
 	 */
-	public default Response<ResponseBody> uploadCoverageZip(byte[] data) throws IOException {
-		RequestBody body = RequestBody.create(MediaType.parse("application/zip"), data);
+	public default Response<ResponseBody> uploadCoverageZip(File zipFile) throws IOException {
+		RequestBody body = RequestBody.create(MediaType.parse("application/zip"), zipFile);
 		MultipartBody.Part part = MultipartBody.Part.createFormData("file", "coverage.zip", body);
 		return upload(part).execute();
 	}
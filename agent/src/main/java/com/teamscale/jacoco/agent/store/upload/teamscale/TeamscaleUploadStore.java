@@ -4,18 +4,21 @@ import com.teamscale.client.EReportFormat;
 import com.teamscale.client.ITeamscaleService;
 import com.teamscale.client.TeamscaleServer;
 import com.teamscale.client.TeamscaleServiceGenerator;
-import com.teamscale.jacoco.agent.store.IXmlStore;
+import com.teamscale.jacoco.agent.store.ICoverageReport;
+import com.teamscale.jacoco.agent.store.ICoverageStore;
 import com.teamscale.jacoco.agent.store.file.TimestampedFileStore;
 import com.teamscale.jacoco.agent.util.Benchmark;
 import com.teamscale.jacoco.agent.util.LoggingUtils;
+import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
+import okio.BufferedSink;
 import org.slf4j.Logger;
 
 import java.io.IOException;
 
 /** Uploads XML Coverage to a Teamscale instance. */
-public class TeamscaleUploadStore implements IXmlStore {
+public class TeamscaleUploadStore implements ICoverageStore {
 
 	/** The logger. */
 	private final Logger logger = LoggingUtils.getLogger(this);
@@ -43,17 +46,17 @@ public class TeamscaleUploadStore implements IXmlStore {
 	}
 
 	@Override
-	public void store(String xml) {
+	public void store(ICoverageReport report) {
 		try (Benchmark benchmark = new Benchmark("Uploading report to Teamscale")) {
-			if (!tryUploading(xml)) {
+			if (!tryUploading(report)) {
 				logger.warn("Storing failed upload in {}", failureStore.getOutputDirectory());
-				failureStore.store(xml);
+				failureStore.store(report);
 			}
 		}
 	}
 
 	/** Performs the upload and returns <code>true</code> if successful. */
-	private boolean tryUploading(String xml) {
+	private boolean tryUploading(ICoverageReport report) {
 		logger.debug("Uploading JaCoCo artifact to {}", teamscaleServer);
 
 		try {
@@ -63,7 +66,7 @@ public class TeamscaleUploadStore implements IXmlStore {
 					teamscaleServer.partition,
 					EReportFormat.JACOCO,
 					teamscaleServer.message,
-					RequestBody.create(MultipartBody.FORM, xml)
+					createRequestBody(report)
 			);
 			return true;
 		} catch (IOException e) {
@@ -72,6 +75,24 @@ public class TeamscaleUploadStore implements IXmlStore {
 		}
 	}
 
+	/**
+	 * Creates a request body that streams the given report to the server while it is rendered. As the length is not
+	 * known in advance, the request is sent with chunked transfer encoding.
+	 */
+	private static RequestBody createRequestBody(ICoverageReport report) {
+		return new RequestBody() {
+			@Override
+			public MediaType contentType() {
+				return MultipartBody.FORM;
+			}
+
+			@Override
+			public void writeTo(BufferedSink sink) throws IOException {
+				report.writeTo(sink.outputStream());
+			}
+		};
+	}
+
 	@Override
 	public String describe() {
 		return "Uploading to " + teamscaleServer + " (fallback in case of network errors to: " + failureStore.describe()
@@ -0,0 +1,126 @@
+package com.teamscale.jacoco.agent.testimpact;
+
+import com.teamscale.jacoco.agent.util.Benchmark;
+import com.teamscale.jacoco.agent.util.BlockingExecutors;
+import com.teamscale.jacoco.agent.util.LoggingUtils;
+import com.teamscale.jacoco.agent.util.Metrics;
+import com.teamscale.report.jacoco.dump.Dump;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Appends the execution data of finished tests to an exec file on a background thread, so a test does not wait until
+ * its coverage has been serialized and written to disk.
+ * <p>
+ * The dumps wait in a bounded queue. Only if tests finish faster than their coverage can be written for a longer time,
+ * appending blocks until the writer has caught up. This limits the memory used for pending dumps.
+ * <p>
+ * After the first failed write, the file is closed and the coverage of all further tests is discarded, since appending
+ * to a partially written dump would corrupt the file.
+ */
+/* package */ class ExecFileWriter {
+
+	/** The number of dumps that may wait to be written. */
+	private static final int QUEUE_CAPACITY = 64;
+
+	/** The logger. */
+	private final Logger logger = LoggingUtils.getLogger(this);
+
+	/** The file to write to. */
+	private final File execFile;
+
+	/** Writes the dumps. */
+	private final ThreadPoolExecutor executor = BlockingExecutors
+			.newSingleThreadExecutor("Test coverage writer", QUEUE_CAPACITY);
+
+	/** The stream to the exec file or <code>null</code> before the first dump. Only used by the writer thread. */
+	private OutputStream output;
+
+	/** Writes to the {@link #output}. Only used by the writer thread. */
+	private ExecutionDataWriter writer;
+
+	/** Whether writing a dump has failed, after which nothing is written anymore. Only used by the writer thread. */
+	private boolean failed = false;
+
+	/** Constructor. */
+	/* package */ ExecFileWriter(File execFile) {
+		this.execFile = execFile;
+	}
+
+	/**
+	 * Schedules writing the given dump. Blocks while the queue is full. Discards the dump if the writer has already
+	 * been {@linkplain #shutdown(Duration) shut down}.
+	 */
+	/* package */ void append(Dump dump) {
+		if (executor.isShutdown()) {
+			logger.warn("Test {} ended after the shutdown. Discarding its coverage.", dump.info.getId());
+			return;
+		}
+		executor.execute(() -> write(dump));
+	}
+
+	/**
+	 * Writes the given dump. Flushes the file once no further dumps are waiting. Logs any errors and closes the file
+	 * on the first error.
+	 */
+	private void write(Dump dump) {
+		if (failed) {
+			return;
+		}
+		try (Benchmark benchmark = new Benchmark("Writing the execution data of a test")) {
+			if (writer == null) {
+				FileSystemUtils.ensureParentDirectoryExists(execFile);
+				output = new BufferedOutputStream(new FileOutputStream(execFile, true));
+				writer = new ExecutionDataWriter(output);
+			}
+			writer.visitSessionInfo(dump.info);
+			dump.store.accept(writer);
+			if (executor.getQueue().isEmpty()) {
+				output.flush();
+			}
+		} catch (IOException e) {
+			logger.error("Failed to write the coverage of test " + dump.info.getId() + " to " + execFile +
+					". Discarding the coverage of all further tests.", e);
+			failed = true;
+			close();
+		}
+	}
+
+	/**
+	 * Writes the waiting dumps and closes the file. Gives up after the given deadline, in which case the remaining dumps
+	 * are lost.
+	 */
+	/* package */ void shutdown(Duration deadline) {
+		long deadlineNanos = System.nanoTime() + deadline.toNanos();
+		Runnable closeTask = this::close;
+		executor.execute(closeTask);
+		executor.shutdown();
+		if (!BlockingExecutors.awaitTermination(executor, deadlineNanos)) {
+			long lostDumps = executor.shutdownNow().stream().filter(task -> task != closeTask).count();
+			logger.warn("Failed to write the coverage of all tests within {}. Discarding {} waiting dumps.",
+					Metrics.formatDuration(deadline.toNanos()), lostDumps);
+		}
+	}
+
+	/** Closes the file if it has been opened. */
+	private void close() {
+		if (output == null) {
+			return;
+		}
+		try {
+			output.close();
+		} catch (IOException e) {
+			logger.error("Failed to close " + execFile, e);
+		}
+		output = null;
+	}
+}
@@ -0,0 +1,112 @@
+package com.teamscale.jacoco.agent.testimpact;
+
+import com.teamscale.jacoco.agent.JacocoRuntimeController;
+import com.teamscale.jacoco.agent.JacocoRuntimeController.DumpException;
+import com.teamscale.report.jacoco.dump.Dump;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attributes the coverage recorded by JaCoCo to the tests that were running while it was recorded, which also works
+ * if several tests run concurrently.
+ * <p>
+ * JaCoCo's probes are shared by all threads, so coverage cannot be traced back to one of several concurrently running
+ * tests. Instead, at every test start and end, the coverage recorded since the previous event is attributed to all
+ * tests that were running in between. Coverage recorded while no test was running is discarded. For tests that run
+ * one after another, this is exact. For concurrent tests, the coverage of a test may also contain coverage of the
+ * other tests. This is safe for test impact analysis, since an impacted test is never missed, but further tests may be
+ * selected.
+ * <p>
+ * A test whose end is never signaled would collect coverage forever. Such tests are ended when they start again and
+ * can be ended explicitly with {@link #endAllTests()}, e.g. on shutdown.
+ */
+/* package */ class TestCoverageCollector {
+
+	/** Controls the JaCoCo runtime. */
+	private final JacocoRuntimeController controller;
+
+	/** The coverage attributed to each running test so far. */
+	private final Map<String, ExecutionDataStore> runningTestCoverage = new HashMap<>();
+
+	/** The start time of each running test. */
+	private final Map<String, Long> runningTestStartTimes = new HashMap<>();
+
+	/** Constructor. */
+	/* package */ TestCoverageCollector(JacocoRuntimeController controller) {
+		this.controller = controller;
+	}
+
+	/**
+	 * Starts collecting the coverage of the given test. If a test with the same ID is still running, e.g. because its
+	 * end was lost, that run is ended and its coverage returned instead of being replaced. Returns <code>null</code>
+	 * otherwise.
+	 */
+	/* package */ synchronized Dump startTest(String testId) throws DumpException {
+		attributeCoverageToRunningTests();
+		Dump unfinishedRun = removeRunningTest(testId);
+		runningTestCoverage.put(testId, new ExecutionDataStore());
+		runningTestStartTimes.put(testId, System.currentTimeMillis());
+		return unfinishedRun;
+	}
+
+	/**
+	 * Stops collecting the coverage of the given test and returns it as a session with the test's ID or
+	 * <code>null</code> if the test was not started.
+	 */
+	/* package */ synchronized Dump endTest(String testId) throws DumpException {
+		attributeCoverageToRunningTests();
+		return removeRunningTest(testId);
+	}
+
+	/** Ends all running tests and returns their coverage. */
+	/* package */ synchronized List<Dump> endAllTests() throws DumpException {
+		attributeCoverageToRunningTests();
+		List<Dump> dumps = new ArrayList<>();
+		for (String testId : new ArrayList<>(runningTestCoverage.keySet())) {
+			dumps.add(removeRunningTest(testId));
+		}
+		return dumps;
+	}
+
+	/** Removes the given test from the running tests and returns its coverage or <code>null</code> if not running. */
+	private Dump removeRunningTest(String testId) {
+		ExecutionDataStore coverage = runningTestCoverage.remove(testId);
+		Long startTime = runningTestStartTimes.remove(testId);
+		if (coverage == null) {
+			return null;
+		}
+		return new Dump(new SessionInfo(testId, startTime, System.currentTimeMillis()), coverage);
+	}
+
+	/** Dumps the coverage recorded since the last test event and adds it to the coverage of all running tests. */
+	private void attributeCoverageToRunningTests() throws DumpException {
+		if (runningTestCoverage.isEmpty()) {
+			controller.reset();
+			return;
+		}
+
+		ExecutionDataStore recentCoverage = controller.dumpAndReset().store;
+		if (runningTestCoverage.size() == 1) {
+			// The dump consists of copies, so it can be added without copying it again
+			recentCoverage.accept(runningTestCoverage.values().iterator().next()::put);
+			return;
+		}
+
+		for (ExecutionDataStore coverage : runningTestCoverage.values()) {
+			for (ExecutionData data : recentCoverage.getContents()) {
+				ExecutionData existingData = coverage.get(data.getId());
+				if (existingData == null) {
+					coverage.put(new ExecutionData(data.getId(), data.getName(), data.getProbes().clone()));
+				} else {
+					existingData.merge(data);
+				}
+			}
+		}
+	}
+}
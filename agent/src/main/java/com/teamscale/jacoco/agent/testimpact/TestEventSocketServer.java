@@ -0,0 +1,141 @@
+package com.teamscale.jacoco.agent.testimpact;
+
+import com.teamscale.jacoco.agent.util.LoggingUtils;
+import com.teamscale.report.testwise.TestEventProtocol;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Listens for test events sent with the {@link TestEventProtocol} on persistent socket connections and passes them to
+ * the {@link TestwiseCoverageAgentMXBean}. Each connection is served by its own daemon thread, which processes the
+ * events of that connection in order. Tests that were started on a connection but did not end when it is closed, e.g.
+ * because the test runner crashed, are ended then.
+ * <p>
+ * The connections are not authenticated, so the server only listens on the loopback address. Test runners on other
+ * machines have to use the HTTP API instead.
+ */
+/* package */ class TestEventSocketServer {
+
+	/** The logger. */
+	private final Logger logger = LoggingUtils.getLogger(this);
+
+	/** Handles the events. */
+	private final TestwiseCoverageAgentMXBean handler;
+
+	/** The socket on which connections are accepted. */
+	private final ServerSocket serverSocket;
+
+	/** Constructor. Binds to an ephemeral port of the loopback address, see {@link #getPort()}. */
+	/* package */ TestEventSocketServer(TestwiseCoverageAgentMXBean handler) throws IOException {
+		this.handler = handler;
+		this.serverSocket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+	}
+
+	/** Starts accepting connections in the background. */
+	/* package */ void start() {
+		Thread acceptThread = new Thread(this::acceptConnections, "Test event server");
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+
+	/** Returns the port on which connections are accepted. */
+	/* package */ int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/** Stops accepting connections. */
+	/* package */ void stop() {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			logger.warn("Failed to close the test event server socket", e);
+		}
+	}
+
+	private void acceptConnections() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				Thread connectionThread = new Thread(() -> serve(socket), "Test event connection");
+				connectionThread.setDaemon(true);
+				connectionThread.start();
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					logger.error("Failed to accept a test event connection", e);
+				}
+			}
+		}
+	}
+
+	/** Processes the events sent on the given connection until it is closed. */
+	private void serve(Socket socket) {
+		Set<String> runningTests = new HashSet<>();
+		try (Socket ignored = socket) {
+			socket.setTcpNoDelay(true);
+			DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			while (true) {
+				int command = input.read();
+				if (command == -1) {
+					return;
+				}
+				String testId = input.readUTF();
+				String error = handle(command, testId);
+				if (command == TestEventProtocol.COMMAND_TEST_START && error == null) {
+					runningTests.add(testId);
+				} else if (command == TestEventProtocol.COMMAND_TEST_END) {
+					runningTests.remove(testId);
+				}
+				TestEventProtocol.writeReply(output, error);
+				if (input.available() == 0) {
+					output.flush();
+				}
+			}
+		} catch (EOFException | SocketException e) {
+			logger.debug("Test event connection closed", e);
+		} catch (IOException e) {
+			logger.error("Failed to process test events", e);
+		} finally {
+			endRunningTests(runningTests);
+		}
+	}
+
+	/** Ends the given tests, whose end will not be signaled anymore, since their connection was closed. */
+	private void endRunningTests(Set<String> runningTests) {
+		for (String testId : runningTests) {
+			logger.warn("Test event connection closed while test {} was running. Ending the test.", testId);
+			handle(TestEventProtocol.COMMAND_TEST_END, testId);
+		}
+	}
+
+	/** Handles a single event and returns an error message or <code>null</code> if it was processed successfully. */
+	private String handle(int command, String testId) {
+		try {
+			switch (command) {
+				case TestEventProtocol.COMMAND_TEST_START:
+					handler.startTest(testId);
+					return null;
+				case TestEventProtocol.COMMAND_TEST_END:
+					handler.endTest(testId);
+					return null;
+				default:
+					return "Unknown command " + command;
+			}
+		} catch (Exception e) {
+			logger.error("Failed to handle test event for " + testId, e);
+			return e.toString();
+		}
+	}
+}
@@ -8,18 +8,31 @@ package com.teamscale.jacoco.agent.testimpact;
 import com.teamscale.jacoco.agent.AgentBase;
 import com.teamscale.jacoco.agent.AgentOptions;
 import com.teamscale.jacoco.agent.JacocoRuntimeController.DumpException;
+import com.teamscale.jacoco.agent.util.Benchmark;
+import com.teamscale.jacoco.agent.util.Metrics;
+import com.teamscale.report.jacoco.dump.Dump;
+import com.teamscale.report.testwise.TestEventProtocol;
 import spark.Request;
 import spark.Response;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+import static spark.Spark.awaitInitialization;
 import static spark.Spark.get;
 import static spark.Spark.port;
 import static spark.Spark.post;
 import static spark.Spark.stop;
 
 /**
- * A wrapper around the JaCoCo Java agent that starts a HTTP server and listens for test events.
+ * A wrapper around the JaCoCo Java agent that starts a HTTP server and listens for test events. Test events can also
+ * be sent over a persistent socket connection, whose port is available via <code>/test/event-port</code>, or, from
+ * within the same JVM, via JMX (see {@link TestwiseCoverageAgentMXBean}).
  */
-public class TestwiseCoverageAgent extends AgentBase {
+public class TestwiseCoverageAgent extends AgentBase implements TestwiseCoverageAgentMXBean {
 
 	/** Path parameter placeholder used in the http requests. */
 	private static final String TEST_ID_PARAMETER = ":testId";
@@ -27,27 +40,72 @@ public class TestwiseCoverageAgent extends AgentBase {
 	/** The agent options. */
 	private AgentOptions options;
 
+	/** How long to wait for pending coverage to be written on shutdown. */
+	private static final Duration SHUTDOWN_DEADLINE = Duration.ofMinutes(1);
+
+	/** Receives test events over persistent connections. */
+	private final TestEventSocketServer eventServer;
+
+	/** Attributes the coverage to the running tests. */
+	private final TestCoverageCollector testCoverageCollector = new TestCoverageCollector(controller);
+
+	/** Writes the coverage of the finished tests. */
+	private final ExecFileWriter execFileWriter;
+
+	/** The port at which the HTTP server listens. Differs from the configured port if that is 0. */
+	private int httpServerPort;
+
 	/** Constructor. */
-	public TestwiseCoverageAgent(AgentOptions options) throws IllegalStateException {
+	public TestwiseCoverageAgent(AgentOptions options) throws IllegalStateException, IOException {
 		super(options);
 		this.options = options;
+		execFileWriter = new ExecFileWriter(options.getNewTestwiseExecFile());
+		eventServer = new TestEventSocketServer(this);
+		eventServer.start();
 		initServer();
+		registerMBean();
+	}
+
+	/** Registers the agent via JMX. Failures are logged, since test events can still be sent via HTTP. */
+	private void registerMBean() {
+		try {
+			ManagementFactory.getPlatformMBeanServer()
+					.registerMBean(this, new ObjectName(TestEventProtocol.AGENT_OBJECT_NAME + httpServerPort));
+		} catch (JMException e) {
+			logger.warn("Failed to register the agent via JMX", e);
+		}
 	}
 
 	/**
-	 * Starts the http server, which waits for information about started and finished tests.
+	 * Starts the http server, which waits for information about started and finished tests. If the configured port is
+	 * 0, the server listens on an ephemeral port, so several JVMs (e.g. parallel test forks) can run the agent at the
+	 * same time. Test runners in the same JVM find the agent via JMX in that case.
 	 */
 	private void initServer() {
-		logger.info("Listening for test events on port {}.", options.getHttpServerPort());
-		port(options.getHttpServerPort());
+		httpServerPort = options.getHttpServerPort();
+		port(httpServerPort);
 
 		get("/test", (request, response) -> controller.getSessionId());
+		get("/test/event-port", (request, response) -> eventServer.getPort());
+		get("/metrics", (request, response) -> {
+			response.type("text/plain");
+			return Metrics.getInstance().getSummary();
+		});
 
 		post("/test/start/" + TEST_ID_PARAMETER, this::handleTestStart);
 		post("/test/end/" + TEST_ID_PARAMETER, this::handleTestEnd);
+
+		if (httpServerPort == 0) {
+			awaitInitialization();
+			httpServerPort = port();
+		}
+		logger.info("Listening for test events on port {}.", httpServerPort);
 	}
 
-	/** Handles the start of a new test case by setting the session ID. */
+	/**
+	 * Handles the start of a new test case by setting the session ID, which is returned by <code>/test</code>. If tests
+	 * run concurrently, that is only the test that started last.
+	 */
 	private String handleTestStart(Request request, Response response) {
 		String testId = request.params(TEST_ID_PARAMETER);
 		if (testId == null || testId.isEmpty()) {
@@ -57,18 +115,31 @@ public class TestwiseCoverageAgent extends AgentBase {
 			return "Test name is missing!";
 		}
 
-		logger.debug("Start test " + testId);
-
-		// Dump and reset coverage so that we only record coverage that belongs to this particular test case.
-		controller.reset();
-		controller.setSessionId(testId);
+		startTest(testId);
 
 		response.status(204);
 		return "";
 	}
 
+	@Override
+	public synchronized void startTest(String testId) {
+		logger.debug("Start test " + testId);
+
+		try {
+			Dump unfinishedRun = testCoverageCollector.startTest(testId);
+			if (unfinishedRun != null) {
+				logger.warn("Test {} started again before its previous run ended. Writing the coverage of the " +
+						"previous run.", testId);
+				execFileWriter.append(unfinishedRun);
+			}
+		} catch (DumpException e) {
+			throw toJmxException("Failed to start test " + testId, e);
+		}
+		controller.setSessionId(testId);
+	}
+
 	/** Handles the end of a test case by resetting the session ID. */
-	private String handleTestEnd(Request request, Response response) throws DumpException {
+	private String handleTestEnd(Request request, Response response) {
 		String testId = request.params(TEST_ID_PARAMETER);
 		if (testId == null || testId.isEmpty()) {
 			logger.error("Test name missing in " + request.url() + "!");
@@ -77,15 +148,57 @@ public class TestwiseCoverageAgent extends AgentBase {
 			return "Test name is missing!";
 		}
 
-		logger.debug("End test " + testId);
-		controller.dump();
+		endTest(testId);
 
 		response.status(204);
 		return "";
 	}
 
+	@Override
+	public synchronized void endTest(String testId) {
+		logger.debug("End test " + testId);
+		try (Benchmark benchmark = new Benchmark("Dumping the execution data of a test")) {
+			Dump dump = testCoverageCollector.endTest(testId);
+			if (dump == null) {
+				logger.warn("Test {} ended without having been started. Discarding its coverage.", testId);
+				return;
+			}
+			execFileWriter.append(dump);
+		} catch (DumpException e) {
+			throw toJmxException("Failed to end test " + testId, e);
+		}
+	}
+
+	/**
+	 * Converts the given exception to one that JMX clients outside of the agent's classloader can deserialize. The
+	 * cause is only logged, since its class is not available to them.
+	 */
+	private IllegalStateException toJmxException(String message, DumpException e) {
+		logger.error(message, e);
+		return new IllegalStateException(message + ": " + e.getMessage());
+	}
+
 	@Override
 	protected void prepareShutdown() {
+		eventServer.stop();
 		stop();
+		// Waits for events that are still being processed, since they may append to the writer
+		synchronized (this) {
+			writeUnfinishedTests();
+			execFileWriter.shutdown(SHUTDOWN_DEADLINE);
+		}
+	}
+
+	/** Writes the coverage of the tests that are still running, since their end will not be signaled anymore. */
+	private void writeUnfinishedTests() {
+		try {
+			for (Dump dump : testCoverageCollector.endAllTests()) {
+				logger.warn("Test {} did not end before shutdown. Writing its coverage so far.",
+						dump.info.getId());
+				execFileWriter.append(dump);
+			}
+		} catch (DumpException e) {
+			logger.error("Failed to write the coverage of the tests that did not end before shutdown", e);
+		}
 	}
 }
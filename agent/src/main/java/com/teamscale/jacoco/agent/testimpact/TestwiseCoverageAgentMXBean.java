@@ -0,0 +1,28 @@
+package com.teamscale.jacoco.agent.testimpact;
+
+import com.teamscale.report.testwise.TestEventProtocol;
+
+/**
+ * Handles the start and end of tests signaled by a test runner.
+ * <p>
+ * The {@link TestwiseCoverageAgent} also registers itself via JMX under {@link TestEventProtocol#AGENT_OBJECT_NAME},
+ * so test runners in the same JVM can signal test events with a plain method call. Since the agent runs in its own
+ * classloader, JMX is used as the shared interface, which only relies on JDK types. This includes the exceptions, so
+ * failures are reported as {@link IllegalStateException}s that only carry a message.
+ */
+public interface TestwiseCoverageAgentMXBean {
+
+	/**
+	 * Starts recording the coverage of the given test.
+	 *
+	 * @throws IllegalStateException if the coverage recorded so far could not be dumped.
+	 */
+	void startTest(String testId);
+
+	/**
+	 * Finishes recording the coverage of the given test and dumps it.
+	 *
+	 * @throws IllegalStateException if the coverage could not be dumped.
+	 */
+	void endTest(String testId);
+}
@@ -3,7 +3,8 @@ package com.teamscale.jacoco.agent.util;
 import org.slf4j.Logger;
 
 /**
- * Measures how long a certain piece of code takes and logs it to the debug log.
+ * Measures how long a certain piece of code takes, logs it to the debug log and records it in the {@link Metrics}
+ * under its description.
  * <p>
  * Use this in a try-with-resources. Time measurement starts when the resource
  * is created and ends when it is closed.
@@ -28,7 +29,8 @@ public class Benchmark implements AutoCloseable {
 	/** {@inheritDoc} */
 	@Override
 	public void close() {
-		long endTime = System.nanoTime();
-		logger.debug("{} took {}s", description, (endTime - startTime) / 1_000_000_000L);
+		long durationNanos = System.nanoTime() - startTime;
+		Metrics.getInstance().record(description, durationNanos);
+		logger.debug("{} took {}", description, Metrics.formatDuration(durationNanos));
 	}
 }
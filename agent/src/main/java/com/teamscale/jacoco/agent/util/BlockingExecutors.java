@@ -0,0 +1,53 @@
+package com.teamscale.jacoco.agent.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/** Creates and stops executors that apply backpressure to their callers instead of buffering unbounded work. */
+public final class BlockingExecutors {
+
+	private BlockingExecutors() {
+		// static utility
+	}
+
+	/**
+	 * Creates a single daemon thread executor with a queue of the given capacity, which blocks callers while the queue
+	 * is full and rejects tasks after it has been shut down.
+	 */
+	public static ThreadPoolExecutor newSingleThreadExecutor(String threadName, int queueCapacity) {
+		return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+				runnable -> {
+					Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+					thread.setName(threadName);
+					thread.setDaemon(true);
+					return thread;
+				}, (runnable, executor) -> {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException(threadName + " has already been shut down");
+			}
+			try {
+				executor.getQueue().put(runnable);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for " + threadName, e);
+			}
+			// The executor may have been shut down while waiting, in which case nobody might run the task anymore
+			if (executor.isShutdown() && executor.getQueue().remove(runnable)) {
+				throw new RejectedExecutionException(threadName + " has already been shut down");
+			}
+		});
+	}
+
+	/** Waits until the given executor has terminated or the deadline (see {@link System#nanoTime()}) has passed. */
+	public static boolean awaitTermination(ThreadPoolExecutor executor, long deadlineNanos) {
+		try {
+			return executor.awaitTermination(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.teamscale.jacoco.agent.util;
+
+/**
+ * Histogram of durations with a bounded relative error. Durations are counted in buckets whose width grows with the
+ * duration: every power of two is split into {@link #SUB_BUCKETS} buckets, so percentiles are accurate to about 12%
+ * independent of whether a step takes microseconds or minutes.
+ * <p>
+ * All methods are thread-safe.
+ */
+public class DurationHistogram {
+
+	/** The number of buckets per power of two. */
+	private static final int SUB_BUCKETS = 8;
+
+	/** The number of mantissa bits that select the bucket within a power of two. */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	/** Enough buckets for all positive long values. */
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	/** The number of durations per bucket. */
+	private final long[] bucketCounts = new long[BUCKET_COUNT];
+
+	/** The number of recorded durations. */
+	private long count = 0;
+
+	/** The sum of all recorded durations in nanoseconds. */
+	private long totalNanos = 0;
+
+	/** The longest recorded duration in nanoseconds. */
+	private long maxNanos = 0;
+
+	/** Records the given duration. Negative durations are recorded as 0. */
+	public synchronized void record(long durationNanos) {
+		long nanos = Math.max(0, durationNanos);
+		bucketCounts[bucketIndex(nanos)]++;
+		count++;
+		totalNanos += nanos;
+		maxNanos = Math.max(maxNanos, nanos);
+	}
+
+	/** Returns the index of the bucket that contains the given duration. */
+	/* package */ static int bucketIndex(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/** Returns the largest duration that falls into the bucket with the given index. */
+	/* package */ static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = index % SUB_BUCKETS;
+		return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	/** @see #count */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/** @see #totalNanos */
+	public synchronized long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/** @see #maxNanos */
+	public synchronized long getMaxNanos() {
+		return maxNanos;
+	}
+
+	/** Returns the mean duration in nanoseconds or 0 if no durations have been recorded. */
+	public synchronized long getMeanNanos() {
+		if (count == 0) {
+			return 0;
+		}
+		return totalNanos / count;
+	}
+
+	/**
+	 * Returns an upper bound of the given percentile (between 0 and 100) of the recorded durations in nanoseconds or 0
+	 * if no durations have been recorded.
+	 */
+	public synchronized long getPercentileNanos(double percentile) {
+		long rank = (long) Math.ceil(percentile / 100 * count);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += bucketCounts[i];
+			if (seen >= rank && seen > 0) {
+				return Math.min(bucketUpperBound(i), maxNanos);
+			}
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,111 @@
+package com.teamscale.jacoco.agent.util;
+
+import org.slf4j.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Registry of the durations of the steps the agent performs (dumping, converting, zipping, uploading, writing files).
+ * The durations are recorded by {@link Benchmark}s and can be inspected via {@link #getSummary()}, which is logged on
+ * shutdown, via JMX (see {@link #registerMBean(Logger)}) and via the HTTP server of the testwise coverage agent.
+ */
+public class Metrics implements MetricsMXBean {
+
+	/** The JMX name under which the metrics are registered. */
+	public static final String OBJECT_NAME = "com.teamscale.jacoco.agent:type=Metrics";
+
+	/** The registry of the agent. */
+	private static final Metrics INSTANCE = new Metrics();
+
+	/** Mapping from step description to the durations of the step. */
+	private final Map<String, DurationHistogram> histograms = new ConcurrentHashMap<>();
+
+	/** Returns the registry of the agent. */
+	public static Metrics getInstance() {
+		return INSTANCE;
+	}
+
+	/** Records a duration of the step with the given description. */
+	public void record(String description, long durationNanos) {
+		histograms.computeIfAbsent(description, key -> new DurationHistogram()).record(durationNanos);
+	}
+
+	/** Returns the durations of the step with the given description or null if the step was never measured. */
+	public DurationHistogram getHistogram(String description) {
+		return histograms.get(description);
+	}
+
+	/** Registers the metrics via JMX. Failures are logged, since the metrics are not essential. */
+	public void registerMBean(Logger logger) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			logger.warn("Failed to register the agent metrics via JMX", e);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getSummary() {
+		StringBuilder summary = new StringBuilder();
+		new TreeMap<>(histograms).forEach((description, histogram) -> summary.append(String.format(Locale.ROOT,
+				"%s: count=%d, mean=%s, p50=%s, p90=%s, p99=%s, max=%s, total=%s%n", description,
+				histogram.getCount(), formatDuration(histogram.getMeanNanos()),
+				formatDuration(histogram.getPercentileNanos(50)), formatDuration(histogram.getPercentileNanos(90)),
+				formatDuration(histogram.getPercentileNanos(99)), formatDuration(histogram.getMaxNanos()),
+				formatDuration(histogram.getTotalNanos()))));
+		return summary.toString();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Map<String, Long> getCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		histograms.forEach((description, histogram) -> counts.put(description, histogram.getCount()));
+		return counts;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Map<String, Double> getMeanMillis() {
+		return mapToMillis(DurationHistogram::getMeanNanos);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Map<String, Double> getP99Millis() {
+		return mapToMillis(histogram -> histogram.getPercentileNanos(99));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Map<String, Double> getMaxMillis() {
+		return mapToMillis(DurationHistogram::getMaxNanos);
+	}
+
+	/** Returns the given duration of each step in milliseconds. */
+	private Map<String, Double> mapToMillis(ToDoubleFunction<DurationHistogram> nanosFunction) {
+		Map<String, Double> millis = new TreeMap<>();
+		histograms.forEach((description, histogram) -> millis
+				.put(description, nanosFunction.applyAsDouble(histogram) / 1_000_000));
+		return millis;
+	}
+
+	/** Formats the given duration with a unit that keeps sub-second durations readable. */
+	public static String formatDuration(long nanos) {
+		if (nanos < 1_000_000) {
+			return String.format(Locale.ROOT, "%.1fus", nanos / 1_000.0);
+		}
+		if (nanos < 1_000_000_000) {
+			return String.format(Locale.ROOT, "%.1fms", nanos / 1_000_000.0);
+		}
+		return String.format(Locale.ROOT, "%.2fs", nanos / 1_000_000_000.0);
+	}
+}
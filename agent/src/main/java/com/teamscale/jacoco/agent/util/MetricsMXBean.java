@@ -0,0 +1,22 @@
+package com.teamscale.jacoco.agent.util;
+
+import java.util.Map;
+
+/** Exposes the {@link Metrics} of the agent via JMX. */
+public interface MetricsMXBean {
+
+	/** Returns a human-readable summary of all metrics. */
+	String getSummary();
+
+	/** Returns the number of measurements per step. */
+	Map<String, Long> getCounts();
+
+	/** Returns the mean duration per step in milliseconds. */
+	Map<String, Double> getMeanMillis();
+
+	/** Returns the 99th percentile of the durations per step in milliseconds. */
+	Map<String, Double> getP99Millis();
+
+	/** Returns the maximum duration per step in milliseconds. */
+	Map<String, Double> getMaxMillis();
+}
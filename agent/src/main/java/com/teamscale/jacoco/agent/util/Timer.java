@@ -5,20 +5,36 @@
 +-------------------------------------------------------------------------*/
 package com.teamscale.jacoco.agent.util;
 
+import org.slf4j.Logger;
+
 import java.time.Duration;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Triggers a callback in a regular interval. Note that the spawned threads are
  * Daemon threads, i.e. they will not prevent the JVM from shutting down.
  * <p>
+ * The first execution can be delayed by a random jitter, so timers that are
+ * started at the same time, e.g. in many JVMs of a cluster, do not run at the
+ * same time. If an execution takes longer than the interval, the interval is
+ * doubled (up to {@link #MAX_BACKOFF_FACTOR} times the original interval)
+ * until an execution finishes within the interval again.
+ * <p>
  * The timer will abort if the given {@link #runnable} ever throws an exception.
+ * A stopped timer cannot be started again.
  */
 public class Timer {
 
+	/** The maximum factor by which the interval is extended after executions that took too long. */
+	/* package */ static final int MAX_BACKOFF_FACTOR = 8;
+
+	/** The logger. */
+	private final Logger logger = LoggingUtils.getLogger(this);
+
 	/** Runs the job on a background daemon thread. */
 	private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
 		Thread thread = Executors.defaultThreadFactory().newThread(runnable);
@@ -26,34 +42,103 @@ public class Timer {
 		return thread;
 	});
 
-	/** The currently running job or <code>null</code>. */
+	/** The next scheduled or currently running execution or <code>null</code>. */
 	private ScheduledFuture<?> job = null;
 
 	/** The job to execute periodically. */
 	private final Runnable runnable;
 
-	/** Duration between two job executions. */
-	private final Duration duration;
+	/** Duration between the starts of two job executions. */
+	private final Duration interval;
+
+	/** The maximum random delay of the first execution in addition to the {@link #interval}. */
+	private final Duration maxInitialJitter;
+
+	/** The factor by which the {@link #interval} is currently extended. */
+	private int backoffFactor = 1;
 
 	/** Constructor. */
-	public Timer(Runnable runnable, Duration duration) {
+	public Timer(Runnable runnable, Duration interval) {
+		this(runnable, interval, Duration.ZERO);
+	}
+
+	/** Constructor. */
+	public Timer(Runnable runnable, Duration interval, Duration maxInitialJitter) {
 		this.runnable = runnable;
-		this.duration = duration;
+		this.interval = interval;
+		this.maxInitialJitter = maxInitialJitter;
 	}
 
 	/** Starts the regular job. */
 	public synchronized void start() {
-		if (job != null) {
+		if (job != null || executor.isShutdown()) {
 			return;
 		}
 
-		job = executor.scheduleAtFixedRate(runnable, duration.toMinutes(), duration.toMinutes(), TimeUnit.MINUTES);
+		long jitterNanos = 0;
+		if (!maxInitialJitter.isZero()) {
+			jitterNanos = ThreadLocalRandom.current().nextLong(maxInitialJitter.toNanos());
+		}
+		schedule(interval.toNanos() + jitterNanos);
+	}
+
+	/** Schedules the next execution after the given delay. */
+	private synchronized void schedule(long delayNanos) {
+		job = executor.schedule(this::runAndReschedule, delayNanos, TimeUnit.NANOSECONDS);
 	}
 
-	/** Stops the regular job, possibly aborting it. */
-	public synchronized void stop() {
-		job.cancel(false);
-		job = null;
+	/** Runs the job and schedules the next execution unless the timer has been stopped in the meantime. */
+	private void runAndReschedule() {
+		long startTime = System.nanoTime();
+		runnable.run();
+		long elapsedNanos = System.nanoTime() - startTime;
+
+		synchronized (this) {
+			if (job != null) {
+				schedule(getNextDelayNanos(elapsedNanos));
+			}
+		}
+	}
+
+	/**
+	 * Returns the delay until the next execution after an execution that took the given time. Keeps a fixed rate as
+	 * long as executions finish within the interval and backs off otherwise.
+	 */
+	/* package */ synchronized long getNextDelayNanos(long elapsedNanos) {
+		long intervalNanos = interval.toNanos();
+		if (elapsedNanos <= intervalNanos) {
+			backoffFactor = 1;
+			return Math.max(0, intervalNanos - elapsedNanos);
+		}
+
+		backoffFactor = Math.min(backoffFactor * 2, MAX_BACKOFF_FACTOR);
+		long delayNanos = intervalNanos * backoffFactor;
+		logger.warn("Execution took {}, which is longer than the interval of {}. Delaying the next execution by {}.",
+				Metrics.formatDuration(elapsedNanos), Metrics.formatDuration(intervalNanos),
+				Metrics.formatDuration(delayNanos));
+		return delayNanos;
+	}
+
+	/**
+	 * Stops the regular job and waits until an execution that is currently running has finished, but at most for the
+	 * given timeout. Returns whether no execution is running anymore.
+	 */
+	public boolean stop(Duration timeout) {
+		synchronized (this) {
+			if (job != null) {
+				job.cancel(false);
+				job = null;
+			}
+			executor.shutdown();
+		}
+
+		// Must not hold the lock while waiting, since the running execution needs it to finish
+		try {
+			return executor.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
 	}
 
 }
@@ -9,6 +9,7 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.function.Predicate;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -52,12 +53,26 @@ public class AgentOptionsTest {
 	@Test
 	public void testIntervalOptions() throws AgentOptionParseException {
 		AgentOptions agentOptions = getAgentOptionsParserWithDummyLogger().parse("out=.,class-dir=.");
-		assertThat(agentOptions.getDumpIntervalInMinutes()).isEqualTo(60);
+		assertThat(agentOptions.getDumpInterval()).isEqualTo(Duration.ofMinutes(60));
 		agentOptions = getAgentOptionsParserWithDummyLogger().parse("out=.,class-dir=.,interval=0");
 		assertThat(agentOptions.shouldDumpInIntervals()).isEqualTo(false);
 		agentOptions = getAgentOptionsParserWithDummyLogger().parse("out=.,class-dir=.,interval=30");
 		assertThat(agentOptions.shouldDumpInIntervals()).isEqualTo(true);
-		assertThat(agentOptions.getDumpIntervalInMinutes()).isEqualTo(30);
+		assertThat(agentOptions.getDumpInterval()).isEqualTo(Duration.ofMinutes(30));
+		agentOptions = getAgentOptionsParserWithDummyLogger().parse("out=.,class-dir=.,interval=45s");
+		assertThat(agentOptions.getDumpInterval()).isEqualTo(Duration.ofSeconds(45));
+		agentOptions = getAgentOptionsParserWithDummyLogger().parse("out=.,class-dir=.,interval=500ms");
+		assertThat(agentOptions.getDumpInterval()).isEqualTo(Duration.ofMillis(500));
+		agentOptions = getAgentOptionsParserWithDummyLogger().parse("out=.,class-dir=.,interval=2h");
+		assertThat(agentOptions.getDumpInterval()).isEqualTo(Duration.ofHours(2));
+		assertThatThrownBy(() -> getAgentOptionsParserWithDummyLogger().parse("out=.,class-dir=.,interval=1d"))
+				.isInstanceOf(AgentOptionParseException.class).hasMessageContaining("interval");
+		assertThatThrownBy(() -> getAgentOptionsParserWithDummyLogger().parse("out=.,class-dir=.,interval=-5"))
+				.isInstanceOf(AgentOptionParseException.class).hasMessageContaining("interval");
+		assertThatThrownBy(() -> getAgentOptionsParserWithDummyLogger().parse("out=.,class-dir=.,interval=-30s"))
+				.isInstanceOf(AgentOptionParseException.class).hasMessageContaining("interval");
+		agentOptions = getAgentOptionsParserWithDummyLogger().parse("out=.,class-dir=.,interval=0s");
+		assertThat(agentOptions.shouldDumpInIntervals()).isEqualTo(false);
 	}
 
 	/** Tests the options for uploading coverage to teamscale. */
@@ -104,6 +119,24 @@ public class AgentOptionsTest {
 				"Ut0BQ2OEvgQXGnNJEjxnaEULAYgBpAK9+HukeKSzAB4CreIQkl2hikIbgNe4i+sL0uAbpTrFeFjOzh3bAtMMVg==");
 	}
 
+	/** Tests the option for storing binary dumps. */
+	@Test
+	public void testBinaryDumpOptions() throws AgentOptionParseException {
+		AgentOptions agentOptions = getAgentOptionsParserWithDummyLogger().parse("out=.,binary-dumps=true");
+		assertThat(agentOptions.shouldStoreBinaryDumps()).isTrue();
+		assertThat(getAgentOptionsParserWithDummyLogger().parse("out=.,class-dir=.").shouldStoreBinaryDumps())
+				.isFalse();
+
+		assertThatThrownBy(() -> getAgentOptionsParserWithDummyLogger().parse("out=.,binary-dumps=true," +
+				"teamscale-server-url=127.0.0.1," +
+				"teamscale-project=test," +
+				"teamscale-user=build," +
+				"teamscale-access-token=token," +
+				"teamscale-partition=partition," +
+				"teamscale-commit=default:HEAD"))
+				.isInstanceOf(AgentOptionParseException.class).hasMessageContaining("binary-dumps");
+	}
+
 	/** Returns the include filter predicate for the given filter expression. */
 	private static Predicate<String> includeFilter(String filterString) throws AgentOptionParseException {
 		AgentOptions agentOptions = getAgentOptionsParserWithDummyLogger()
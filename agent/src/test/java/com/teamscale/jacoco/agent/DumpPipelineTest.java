@@ -0,0 +1,175 @@
+package com.teamscale.jacoco.agent;
+
+import com.teamscale.jacoco.agent.store.ICoverageReport;
+import com.teamscale.jacoco.agent.store.ICoverageStore;
+import com.teamscale.jacoco.agent.util.Timer;
+import com.teamscale.report.EDuplicateClassFileBehavior;
+import com.teamscale.report.jacoco.JaCoCoXmlReportGenerator;
+import com.teamscale.report.jacoco.dump.Dump;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfo;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests the {@link DumpPipeline}. */
+public class DumpPipelineTest {
+
+	/** Tests that all submitted dumps are stored in order before the shutdown completes. */
+	@Test
+	public void testShutdownDrainsPipeline() {
+		RecordingStore store = new RecordingStore(new CountDownLatch(0));
+		DumpPipeline pipeline = new DumpPipeline(createGenerator(), store);
+
+		for (int i = 0; i < 3; i++) {
+			pipeline.submit(createDump("session" + i));
+		}
+		pipeline.shutdown(Duration.ofSeconds(30));
+
+		assertThat(store.reports).hasSize(3);
+		assertThat(store.reports.get(0)).startsWith("xml:").contains("session0");
+		assertThat(store.reports.get(2)).contains("session2");
+	}
+
+	/** Tests that binary execution data is stored without conversion and without a report generator. */
+	@Test
+	public void testExecutionDataIsStoredWithoutConversion() throws Exception {
+		RecordingStore store = new RecordingStore(new CountDownLatch(0));
+		DumpPipeline pipeline = new DumpPipeline(null, store);
+
+		pipeline.submitExecutionData("binary data".getBytes(FileSystemUtils.UTF8_ENCODING));
+		pipeline.shutdown(Duration.ofSeconds(30));
+
+		assertThat(store.reports).containsExactly("exec:binary data");
+	}
+
+	/** Tests that submitting blocks while all stages are busy and their queues are full. */
+	@Test
+	public void testSubmitBlocksWhenPipelineIsFull() throws Exception {
+		CountDownLatch storeBlocker = new CountDownLatch(1);
+		RecordingStore store = new RecordingStore(storeBlocker);
+		DumpPipeline pipeline = new DumpPipeline(createGenerator(), store);
+
+		// Two reports in the store stage and two dumps in the conversion stage fill the pipeline
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < 5; i++) {
+				pipeline.submit(createDump("session" + i));
+			}
+		});
+		producer.start();
+		producer.join(1000);
+		assertThat(producer.isAlive()).isTrue();
+
+		storeBlocker.countDown();
+		producer.join(30_000);
+		assertThat(producer.isAlive()).isFalse();
+		pipeline.shutdown(Duration.ofSeconds(30));
+		assertThat(store.reports).hasSize(5);
+	}
+
+	/** Tests that the shutdown gives up after the deadline. */
+	@Test
+	public void testShutdownRespectsDeadline() {
+		RecordingStore store = new RecordingStore(new CountDownLatch(1));
+		DumpPipeline pipeline = new DumpPipeline(createGenerator(), store);
+		pipeline.submit(createDump("session"));
+		pipeline.submit(createDump("session"));
+
+		long start = System.nanoTime();
+		pipeline.shutdown(Duration.ofMillis(200));
+
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+		assertThat(store.reports).isEmpty();
+	}
+
+	/**
+	 * Tests that an interval dump that is running while the agent shuts down finishes and is stored together with the
+	 * final dump, using the same shutdown order as the {@link Agent}.
+	 */
+	@Test
+	public void testDumpInFlightDuringShutdownIsStored() throws Exception {
+		RecordingStore store = new RecordingStore(new CountDownLatch(0));
+		DumpPipeline pipeline = new DumpPipeline(createGenerator(), store);
+		CountDownLatch dumpStarted = new CountDownLatch(1);
+		CountDownLatch dumpReleased = new CountDownLatch(1);
+		Timer timer = new Timer(() -> {
+			dumpStarted.countDown();
+			try {
+				dumpReleased.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+			pipeline.submit(createDump("interval"));
+		}, Duration.ofMillis(10));
+		timer.start();
+		assertThat(dumpStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+		Thread shutdown = new Thread(() -> {
+			timer.stop(Duration.ofSeconds(30));
+			pipeline.submit(createDump("final"));
+			pipeline.shutdown(Duration.ofSeconds(30));
+		});
+		shutdown.start();
+		shutdown.join(200);
+		assertThat(shutdown.isAlive()).isTrue();
+
+		dumpReleased.countDown();
+		shutdown.join(30_000);
+		assertThat(shutdown.isAlive()).isFalse();
+		assertThat(store.reports).hasSize(2);
+		assertThat(store.reports.get(0)).contains("interval");
+		assertThat(store.reports.get(1)).contains("final");
+	}
+
+	/** Creates a generator without any class files. */
+	private static JaCoCoXmlReportGenerator createGenerator() {
+		return new JaCoCoXmlReportGenerator(Collections.emptyList(), location -> true,
+				EDuplicateClassFileBehavior.IGNORE, new DummyLogger());
+	}
+
+	/** Creates an empty dump for the given session. */
+	private static Dump createDump(String sessionId) {
+		return new Dump(new SessionInfo(sessionId, 1, 2), new ExecutionDataStore());
+	}
+
+	/** Records the stored reports after waiting for the given latch. */
+	private static class RecordingStore implements ICoverageStore {
+
+		/** The stored reports. */
+		private final List<String> reports = new CopyOnWriteArrayList<>();
+
+		/** Blocks storing until released. */
+		private final CountDownLatch latch;
+
+		private RecordingStore(CountDownLatch latch) {
+			this.latch = latch;
+		}
+
+		@Override
+		public void store(ICoverageReport report) {
+			try {
+				latch.await();
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				report.writeTo(output);
+				reports.add(report.getFileExtension() + ":" + output.toString(FileSystemUtils.UTF8_ENCODING));
+			} catch (InterruptedException | IOException e) {
+				// the report is not recorded
+			}
+		}
+
+		@Override
+		public String describe() {
+			return "recording store";
+		}
+	}
+}
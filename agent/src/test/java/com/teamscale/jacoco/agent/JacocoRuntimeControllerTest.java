@@ -0,0 +1,79 @@
+package com.teamscale.jacoco.agent;
+
+import com.teamscale.report.jacoco.dump.Dump;
+import org.jacoco.agent.rt.IAgent;
+import org.jacoco.agent.rt.internal_1f1cc91.core.runtime.AgentOptions;
+import org.jacoco.agent.rt.internal_1f1cc91.core.runtime.RuntimeData;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/** Tests the {@link JacocoRuntimeController}. */
+public class JacocoRuntimeControllerTest {
+
+	/** The JaCoCo agent running in this JVM. */
+	private static org.jacoco.agent.rt.internal_1f1cc91.Agent agent;
+
+	@BeforeClass
+	public static void startAgent() {
+		agent = org.jacoco.agent.rt.internal_1f1cc91.Agent.getInstance(new AgentOptions("output=none"));
+	}
+
+	/** Tests that reading the execution data directly from the runtime yields the same data as parsing it. */
+	@Test
+	public void testDirectDumpEqualsParsedDump() throws Exception {
+		IAgent serializingAgent = mock(IAgent.class);
+		when(serializingAgent.getExecutionData(true)).then(invocation -> agent.getExecutionData(true));
+
+		simulateHits();
+		Dump parsedDump = new JacocoRuntimeController(serializingAgent).dumpAndReset();
+		simulateHits();
+		Dump directDump = new JacocoRuntimeController(agent).dumpAndReset();
+
+		assertThat(directDump.store.getContents()).hasSize(1);
+		assertThat(directDump.store.get(1).getName()).isEqualTo("Hit");
+		assertThat(directDump.store.get(1).getProbes()).containsExactly(parsedDump.store.get(1).getProbes());
+		assertThat(directDump.info.getId()).isEqualTo(parsedDump.info.getId());
+	}
+
+	/** Tests that dumping resets the execution data, but not the probes already passed on. */
+	@Test
+	public void testDumpResetsExecutionData() throws Exception {
+		JacocoRuntimeController controller = new JacocoRuntimeController(agent);
+
+		simulateHits();
+		Dump dump = controller.dumpAndReset();
+
+		assertThat(dump.store.get(1).getProbes()).containsExactly(true, false, true);
+		assertThat(controller.dumpAndReset().store.getContents()).isEmpty();
+	}
+
+	/** Tests that resetting clears the probes in place and starts a new session. */
+	@Test
+	public void testResetClearsProbesInPlace() throws Exception {
+		JacocoRuntimeController controller = new JacocoRuntimeController(agent);
+		boolean[] probes = agent.getData().getExecutionData(1L, "Hit", 3).getProbes();
+
+		simulateHits();
+		long resetTime = System.currentTimeMillis();
+		controller.reset();
+
+		assertThat(probes).containsOnly(false);
+		probes[1] = true;
+		Dump dump = controller.dumpAndReset();
+		assertThat(dump.store.get(1).getProbes()).containsExactly(false, true, false);
+		assertThat(dump.info.getStartTimeStamp()).isGreaterThanOrEqualTo(resetTime);
+	}
+
+	/** Marks some probes of two classes as executed, as instrumented code would do. */
+	private static void simulateHits() {
+		RuntimeData data = agent.getData();
+		boolean[] hitProbes = data.getExecutionData(1L, "Hit", 3).getProbes();
+		hitProbes[0] = true;
+		hitProbes[2] = true;
+		data.getExecutionData(2L, "NotHit", 2);
+	}
+}
@@ -0,0 +1,71 @@
+package com.teamscale.jacoco.agent.testimpact;
+
+import com.teamscale.report.jacoco.dump.Dump;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests the {@link ExecFileWriter}. */
+public class ExecFileWriterTest {
+
+	/** The temporary folder for the exec file. */
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	/** Tests that all dumps are written in order before the shutdown completes. */
+	@Test
+	public void testDumpsAreWrittenOnShutdown() throws Exception {
+		File execFile = new File(testFolder.getRoot(), "coverage/jacoco.exec");
+		ExecFileWriter writer = new ExecFileWriter(execFile);
+
+		for (int i = 0; i < 100; i++) {
+			writer.append(createDump("test" + i, i));
+		}
+		writer.shutdown(Duration.ofSeconds(30));
+
+		ExecFileLoader loader = new ExecFileLoader();
+		loader.load(execFile);
+		assertThat(loader.getSessionInfoStore().getInfos()).hasSize(100);
+		assertThat(loader.getSessionInfoStore().getInfos().stream().map(SessionInfo::getId)
+				.collect(Collectors.toList())).startsWith("test0", "test1", "test2");
+		assertThat(loader.getExecutionDataStore().get(99).getName()).isEqualTo("Class99");
+	}
+
+	/** Tests that a shutdown without any dumps does not create an exec file. */
+	@Test
+	public void testNoFileWithoutDumps() {
+		File execFile = new File(testFolder.getRoot(), "jacoco.exec");
+		new ExecFileWriter(execFile).shutdown(Duration.ofSeconds(30));
+
+		assertThat(execFile).doesNotExist();
+	}
+
+	/** Tests that dumps appended after the shutdown are discarded instead of failing. */
+	@Test
+	public void testDumpsAfterShutdownAreDiscarded() {
+		File execFile = new File(testFolder.getRoot(), "jacoco.exec");
+		ExecFileWriter writer = new ExecFileWriter(execFile);
+		writer.shutdown(Duration.ofSeconds(30));
+
+		writer.append(createDump("test", 1));
+
+		assertThat(execFile).doesNotExist();
+	}
+
+	/** Creates a dump of the given test that covers one class. */
+	private static Dump createDump(String testId, long classId) {
+		ExecutionDataStore store = new ExecutionDataStore();
+		store.put(new ExecutionData(classId, "Class" + classId, new boolean[]{true}));
+		return new Dump(new SessionInfo(testId, 1, 2), store);
+	}
+}
@@ -0,0 +1,105 @@
+package com.teamscale.jacoco.agent.testimpact;
+
+import com.teamscale.jacoco.agent.JacocoRuntimeController;
+import com.teamscale.report.jacoco.dump.Dump;
+import org.jacoco.agent.rt.internal_1f1cc91.Agent;
+import org.jacoco.agent.rt.internal_1f1cc91.core.runtime.AgentOptions;
+import org.jacoco.agent.rt.internal_1f1cc91.core.runtime.RuntimeData;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests the {@link TestCoverageCollector}. */
+public class TestCoverageCollectorTest {
+
+	/** The JaCoCo agent running in this JVM. */
+	private static Agent agent;
+
+	@BeforeClass
+	public static void startAgent() {
+		agent = Agent.getInstance(new AgentOptions("output=none"));
+	}
+
+	/** Tests that the coverage of consecutive tests is attributed exactly and coverage in between is discarded. */
+	@Test
+	public void testConsecutiveTests() throws Exception {
+		TestCoverageCollector collector = new TestCoverageCollector(new JacocoRuntimeController(agent));
+
+		hit(11, 0);
+		collector.startTest("test1");
+		hit(12, 0);
+		Dump test1 = collector.endTest("test1");
+		hit(13, 0);
+		collector.startTest("test2");
+		hit(14, 1);
+		Dump test2 = collector.endTest("test2");
+
+		assertThat(test1.info.getId()).isEqualTo("test1");
+		assertThat(test1.store.getContents()).extracting(data -> data.getId()).containsExactly(12L);
+		assertThat(test2.store.getContents()).extracting(data -> data.getId()).containsExactly(14L);
+		assertThat(test2.store.get(14).getProbes()).containsExactly(false, true);
+	}
+
+	/** Tests that coverage recorded while tests overlap is attributed to all of them. */
+	@Test
+	public void testConcurrentTests() throws Exception {
+		TestCoverageCollector collector = new TestCoverageCollector(new JacocoRuntimeController(agent));
+
+		collector.startTest("test1");
+		hit(11, 0);
+		collector.startTest("test2");
+		hit(12, 0);
+		Dump test1 = collector.endTest("test1");
+		hit(12, 1);
+		Dump test2 = collector.endTest("test2");
+
+		assertThat(test1.store.getContents()).extracting(data -> data.getId()).containsExactlyInAnyOrder(11L, 12L);
+		assertThat(test1.store.get(12).getProbes()).containsExactly(true, false);
+		assertThat(test2.store.getContents()).extracting(data -> data.getId()).containsExactly(12L);
+		assertThat(test2.store.get(12).getProbes()).containsExactly(true, true);
+	}
+
+	/** Tests that ending a test that was never started yields no coverage. */
+	@Test
+	public void testEndWithoutStart() throws Exception {
+		TestCoverageCollector collector = new TestCoverageCollector(new JacocoRuntimeController(agent));
+
+		assertThat(collector.endTest("unknown")).isNull();
+	}
+
+	/** Tests that starting a running test again ends the previous run instead of discarding its coverage. */
+	@Test
+	public void testRestartOfRunningTest() throws Exception {
+		TestCoverageCollector collector = new TestCoverageCollector(new JacocoRuntimeController(agent));
+
+		assertThat(collector.startTest("test1")).isNull();
+		hit(11, 0);
+		Dump previousRun = collector.startTest("test1");
+		hit(12, 0);
+		Dump test1 = collector.endTest("test1");
+
+		assertThat(previousRun.store.getContents()).extracting(data -> data.getId()).containsExactly(11L);
+		assertThat(test1.store.getContents()).extracting(data -> data.getId()).containsExactly(12L);
+	}
+
+	/** Tests that all running tests can be ended, e.g. on shutdown. */
+	@Test
+	public void testEndAllTests() throws Exception {
+		TestCoverageCollector collector = new TestCoverageCollector(new JacocoRuntimeController(agent));
+
+		collector.startTest("test1");
+		collector.startTest("test2");
+		hit(11, 0);
+
+		assertThat(collector.endAllTests()).extracting(dump -> dump.info.getId())
+				.containsExactlyInAnyOrder("test1", "test2");
+		assertThat(collector.endAllTests()).isEmpty();
+	}
+
+	/** Marks a probe of the class with the given ID as executed, as instrumented code would do. */
+	private static void hit(long classId, int probe) {
+		RuntimeData data = agent.getData();
+		data.getExecutionData(classId, "Class" + classId, 2).getProbes()[probe] = true;
+	}
+}
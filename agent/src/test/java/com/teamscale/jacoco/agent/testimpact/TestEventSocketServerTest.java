@@ -0,0 +1,116 @@
+package com.teamscale.jacoco.agent.testimpact;
+
+import com.teamscale.report.testwise.TestEventProtocol;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Tests the {@link TestEventSocketServer}. */
+public class TestEventSocketServerTest {
+
+	/** The events received by the server. */
+	private final List<String> events = new CopyOnWriteArrayList<>();
+
+	private TestEventSocketServer server;
+
+	@Before
+	public void startServer() throws IOException {
+		server = new TestEventSocketServer(new TestwiseCoverageAgentMXBean() {
+			@Override
+			public void startTest(String testId) {
+				events.add("start " + testId);
+			}
+
+			@Override
+			public void endTest(String testId) {
+				if (testId.equals("broken")) {
+					throw new IllegalStateException("Dump failed");
+				}
+				events.add("end " + testId);
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+
+	/** Tests that events are handled in order and each is acknowledged after it was handled. */
+	@Test
+	public void testEventsAreHandledInOrder() throws IOException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+			DataInputStream input = new DataInputStream(socket.getInputStream());
+
+			for (int i = 0; i < 3; i++) {
+				send(output, TestEventProtocol.COMMAND_TEST_START, "test" + i);
+				TestEventProtocol.readReply(input);
+				assertThat(events).endsWith("start test" + i);
+				send(output, TestEventProtocol.COMMAND_TEST_END, "test" + i);
+				TestEventProtocol.readReply(input);
+			}
+		}
+
+		assertThat(events).containsExactly("start test0", "end test0", "start test1", "end test1", "start test2",
+				"end test2");
+	}
+
+	/** Tests that a failure of the handler is reported to the client, which can continue sending events. */
+	@Test
+	public void testErrorsAreReported() throws IOException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+			DataInputStream input = new DataInputStream(socket.getInputStream());
+
+			send(output, TestEventProtocol.COMMAND_TEST_END, "broken");
+			assertThatThrownBy(() -> TestEventProtocol.readReply(input)).isInstanceOf(IOException.class)
+					.hasMessageContaining("Dump failed");
+
+			send(output, TestEventProtocol.COMMAND_TEST_END, "test");
+			TestEventProtocol.readReply(input);
+		}
+
+		assertThat(events).containsExactly("end test");
+	}
+
+	/** Tests that tests that are still running when their connection is closed are ended. */
+	@Test
+	public void testRunningTestsAreEndedWhenConnectionCloses() throws Exception {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+			DataInputStream input = new DataInputStream(socket.getInputStream());
+
+			send(output, TestEventProtocol.COMMAND_TEST_START, "finished");
+			TestEventProtocol.readReply(input);
+			send(output, TestEventProtocol.COMMAND_TEST_END, "finished");
+			TestEventProtocol.readReply(input);
+			send(output, TestEventProtocol.COMMAND_TEST_START, "unfinished");
+			TestEventProtocol.readReply(input);
+		}
+
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!events.contains("end unfinished") && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(events).containsExactly("start finished", "end finished", "start unfinished", "end unfinished");
+	}
+
+	private static void send(DataOutputStream output, byte command, String testId) throws IOException {
+		output.writeByte(command);
+		output.writeUTF(testId);
+		output.flush();
+	}
+}
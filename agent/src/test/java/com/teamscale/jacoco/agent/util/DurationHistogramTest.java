@@ -0,0 +1,46 @@
+package com.teamscale.jacoco.agent.util;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests the {@link DurationHistogram}. */
+public class DurationHistogramTest {
+
+	/** Tests that every duration falls into a bucket whose bounds contain it. */
+	@Test
+	public void testBucketBoundsContainDurations() {
+		for (long nanos : new long[]{0, 1, 7, 8, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE}) {
+			int index = DurationHistogram.bucketIndex(nanos);
+			assertThat(DurationHistogram.bucketUpperBound(index)).isGreaterThanOrEqualTo(nanos);
+			if (index > 0) {
+				assertThat(DurationHistogram.bucketUpperBound(index - 1)).isLessThan(nanos);
+			}
+		}
+	}
+
+	/** Tests that percentiles are accurate up to the bucket width. */
+	@Test
+	public void testPercentiles() {
+		DurationHistogram histogram = new DurationHistogram();
+		for (int millis = 1; millis <= 100; millis++) {
+			histogram.record(millis * 1_000_000L);
+		}
+
+		assertThat(histogram.getCount()).isEqualTo(100);
+		assertThat(histogram.getMeanNanos()).isEqualTo(50_500_000L);
+		assertThat(histogram.getMaxNanos()).isEqualTo(100_000_000L);
+		assertThat(histogram.getPercentileNanos(50)).isBetween(50_000_000L, 50_000_000L * 9 / 8);
+		assertThat(histogram.getPercentileNanos(99)).isBetween(99_000_000L, 100_000_000L);
+		assertThat(histogram.getPercentileNanos(100)).isEqualTo(100_000_000L);
+	}
+
+	/** Tests that an empty histogram reports 0 everywhere. */
+	@Test
+	public void testEmptyHistogram() {
+		DurationHistogram histogram = new DurationHistogram();
+
+		assertThat(histogram.getMeanNanos()).isZero();
+		assertThat(histogram.getPercentileNanos(99)).isZero();
+	}
+}
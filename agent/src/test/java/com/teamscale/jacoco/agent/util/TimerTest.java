@@ -0,0 +1,44 @@
+package com.teamscale.jacoco.agent.util;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests the {@link Timer}. */
+public class TimerTest {
+
+	/** Tests that intervals below a minute are supported. */
+	@Test
+	public void testSubMinuteInterval() throws Exception {
+		CountDownLatch executions = new CountDownLatch(3);
+		Timer timer = new Timer(executions::countDown, Duration.ofMillis(10), Duration.ofMillis(10));
+		timer.start();
+		try {
+			assertThat(executions.await(10, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			timer.stop(Duration.ofSeconds(10));
+		}
+	}
+
+	/** Tests that the timer keeps a fixed rate and backs off if executions take longer than the interval. */
+	@Test
+	public void testBackoff() {
+		long interval = Duration.ofSeconds(10).toNanos();
+		Timer timer = new Timer(() -> {
+		}, Duration.ofNanos(interval));
+
+		assertThat(timer.getNextDelayNanos(interval / 4)).isEqualTo(interval * 3 / 4);
+		assertThat(timer.getNextDelayNanos(interval * 2)).isEqualTo(interval * 2);
+		assertThat(timer.getNextDelayNanos(interval * 2)).isEqualTo(interval * 4);
+		for (int i = 0; i < 5; i++) {
+			timer.getNextDelayNanos(interval * 2);
+		}
+		assertThat(timer.getNextDelayNanos(interval * 2)).isEqualTo(interval * Timer.MAX_BACKOFF_FACTOR);
+		assertThat(timer.getNextDelayNanos(interval / 2)).isEqualTo(interval / 2);
+		assertThat(timer.getNextDelayNanos(interval * 2)).isEqualTo(interval * 2);
+	}
+}
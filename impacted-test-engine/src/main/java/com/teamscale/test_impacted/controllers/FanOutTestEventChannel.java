@@ -0,0 +1,237 @@
+package com.teamscale.test_impacted.controllers;
+
+import org.junit.platform.commons.logging.Logger;
+import org.junit.platform.commons.logging.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Signals test events to several agents concurrently and returns once all agents have acknowledged the event, so the
+ * latency of an event is the maximum rather than the sum of the agents' latencies. A failing agent does not prevent the
+ * others from receiving the event.
+ * <p>
+ * Each agent has its own thread, so the events of one agent stay in order. An agent that does not acknowledge an event
+ * within the timeout is skipped for all further test starts until it has processed the pending one. The end of a test
+ * is only dropped for an agent that skipped its start. Otherwise, it is queued behind the agent's pending events, since
+ * the agent would consider the test running forever without it. A single agent is called on its own thread as well, so
+ * the timeout also applies to channels that cannot time out by themselves.
+ * <p>
+ * Events of concurrently running tests are only handed to the agents' threads one after another, so the agents see them
+ * in a consistent order. Waiting for the acknowledgements happens concurrently.
+ */
+public class FanOutTestEventChannel implements ITestEventChannel {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FanOutTestEventChannel.class);
+
+	/** The agents together with their channels. */
+	private final List<AgentChannel> agentChannels;
+
+	/** How long to wait for all agents to acknowledge an event. */
+	private final Duration timeout;
+
+	/** Guards handing events to the agents' threads and the state of the {@link AgentChannel}s. */
+	private final Object lock = new Object();
+
+	private FanOutTestEventChannel(List<AgentChannel> agentChannels, Duration timeout) {
+		this.agentChannels = agentChannels;
+		this.timeout = timeout;
+	}
+
+	/** Opens channels to all given agents. */
+	public static FanOutTestEventChannel open(List<TestwiseCoverageAgent> agents, Duration timeout) {
+		List<AgentChannel> agentChannels = agents.stream()
+				.map(agent -> new AgentChannel(agent.toString(), agent.openEventChannel()))
+				.collect(Collectors.toList());
+		return new FanOutTestEventChannel(agentChannels, timeout);
+	}
+
+	/** Fans out to the given channels, which are identified by their names in log messages. */
+	/* package */ static FanOutTestEventChannel create(Map<String, ITestEventChannel> channels, Duration timeout) {
+		List<AgentChannel> agentChannels = channels.entrySet().stream()
+				.map(entry -> new AgentChannel(entry.getKey(), entry.getValue()))
+				.collect(Collectors.toList());
+		return new FanOutTestEventChannel(agentChannels, timeout);
+	}
+
+	@Override
+	public void testStarted(String testUniformPath) throws IOException {
+		fanOut(agentChannel -> agentChannel.testStarted(testUniformPath));
+	}
+
+	@Override
+	public void testFinished(String testUniformPath) throws IOException {
+		fanOut(agentChannel -> agentChannel.testFinished(testUniformPath));
+	}
+
+	/**
+	 * Sends an event to all agents and waits until all have acknowledged it or the timeout has passed.
+	 *
+	 * @throws IOException if sending the event to at least one agent failed. All agents have been tried.
+	 */
+	private void fanOut(Function<AgentChannel, Future<?>> send) throws IOException {
+		List<Future<?>> acknowledgements = new ArrayList<>(agentChannels.size());
+		synchronized (lock) {
+			for (AgentChannel agentChannel : agentChannels) {
+				acknowledgements.add(send.apply(agentChannel));
+			}
+		}
+
+		long deadline = System.nanoTime() + timeout.toNanos();
+		List<String> failures = new ArrayList<>();
+		for (int i = 0; i < agentChannels.size(); i++) {
+			AgentChannel agentChannel = agentChannels.get(i);
+			try {
+				acknowledgements.get(i).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			} catch (ExecutionException e) {
+				failures.add(agentChannel.agent + ": " + e.getCause().getMessage());
+			} catch (TimeoutException e) {
+				failures.add(agentChannel.agent + ": no acknowledgement within " + timeout.toMillis() + "ms");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the agents", e);
+			}
+		}
+		if (!failures.isEmpty()) {
+			throw new IOException("Failed to signal the test event to some agents: " + String.join(", ", failures));
+		}
+	}
+
+	/** Waits up to the timeout for the events that are still being sent and closes the channels afterwards. */
+	@Override
+	public void close() {
+		for (AgentChannel agentChannel : agentChannels) {
+			agentChannel.executor.shutdown();
+		}
+		long deadline = System.nanoTime() + timeout.toNanos();
+		for (AgentChannel agentChannel : agentChannels) {
+			agentChannel.close(deadline);
+		}
+	}
+
+	/** An event that is sent over a channel. */
+	@FunctionalInterface
+	private interface IEvent {
+
+		/** Sends the event. */
+		void sendTo(ITestEventChannel channel) throws IOException;
+	}
+
+	/**
+	 * The channel to a single agent together with the thread that sends its events. Except for {@link #close(long)},
+	 * all methods must be called while holding the {@link FanOutTestEventChannel#lock}.
+	 */
+	private static class AgentChannel {
+
+		/** Describes the agent. */
+		private final String agent;
+
+		/** The channel to the agent. */
+		private final ITestEventChannel channel;
+
+		/** Sends the events to the agent. */
+		private final ExecutorService executor;
+
+		/** The last event sent to the agent. */
+		private Future<?> pendingEvent;
+
+		/** The tests whose start was not sent to the agent, so their end must not be sent either. */
+		private final Set<String> skippedTests = new HashSet<>();
+
+		/** Whether skipping an event of this agent has already been logged. */
+		private boolean skipLogged = false;
+
+		private AgentChannel(String agent, ITestEventChannel channel) {
+			this.agent = agent;
+			this.channel = channel;
+			this.executor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Test events for " + agent);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		/** Sends the start of the test unless the agent is still processing an earlier event. */
+		private Future<?> testStarted(String testUniformPath) {
+			if (isProcessingEvent()) {
+				skippedTests.add(testUniformPath);
+				return skipped();
+			}
+			return send(channel -> channel.testStarted(testUniformPath));
+		}
+
+		/**
+		 * Sends the end of the test unless its start was skipped. If the agent is still processing an earlier event,
+		 * the end is queued behind it, since the start may already have been sent.
+		 */
+		private Future<?> testFinished(String testUniformPath) {
+			if (skippedTests.remove(testUniformPath)) {
+				return CompletableFuture.completedFuture(null);
+			}
+			return send(channel -> channel.testFinished(testUniformPath));
+		}
+
+		/** Returns whether the agent has not yet acknowledged the last event. */
+		private boolean isProcessingEvent() {
+			return pendingEvent != null && !pendingEvent.isDone();
+		}
+
+		/** Sends the event and returns a future that completes once the agent has acknowledged it. */
+		private Future<?> send(IEvent event) {
+			pendingEvent = executor.submit(() -> {
+				event.sendTo(channel);
+				return null;
+			});
+			return pendingEvent;
+		}
+
+		/**
+		 * Returns a completed future for an event that is not sent, since the agent is still processing an earlier one.
+		 * Skipping is intended, so it is only logged once per agent instead of failing the event.
+		 */
+		private Future<?> skipped() {
+			if (!skipLogged) {
+				skipLogged = true;
+				LOGGER.warn(() -> "The agent " + agent + " is still processing an earlier test event. Skipping " +
+						"test starts for this agent until it has caught up, so its testwise coverage is incomplete.");
+			}
+			return CompletableFuture.completedFuture(null);
+		}
+
+		/**
+		 * Waits until the agent's thread, which must already be shut down, has sent the pending event or the deadline
+		 * has passed, and closes the channel afterwards, so the channel is not closed while it is still being written.
+		 */
+		private void close(long deadline) {
+			try {
+				if (!executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+					LOGGER.warn(() -> "The agent " + agent + " did not acknowledge the last test event before closing " +
+							"the connection");
+					executor.shutdownNow();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				executor.shutdownNow();
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+				LOGGER.warn(e, () -> "Failed to close the connection to the agent " + agent);
+			}
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.teamscale.test_impacted.controllers;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.io.IOException;
+
+/** Signals each test event with a separate HTTP request. Used for agents that do not support other channels. */
+/* package */ class HttpTestEventChannel implements ITestEventChannel {
+
+	/** The API of the agent. */
+	private final ITestwiseCoverageAgentApi api;
+
+	/** Constructor. */
+	/* package */ HttpTestEventChannel(ITestwiseCoverageAgentApi api) {
+		this.api = api;
+	}
+
+	@Override
+	public void testStarted(String testUniformPath) throws IOException {
+		execute(api.testStarted(testUniformPath));
+	}
+
+	@Override
+	public void testFinished(String testUniformPath) throws IOException {
+		execute(api.testFinished(testUniformPath));
+	}
+
+	private static void execute(Call<ResponseBody> call) throws IOException {
+		Response<ResponseBody> response = call.execute();
+		if (!response.isSuccessful()) {
+			throw new IOException("The agent responded with HTTP status " + response.code());
+		}
+	}
+
+	@Override
+	public void close() {
+		// nothing to close
+	}
+}
@@ -0,0 +1,14 @@
+package com.teamscale.test_impacted.controllers;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/** A channel over which test starts and ends are signaled to a Teamscale agent in testwise coverage mode. */
+public interface ITestEventChannel extends Closeable {
+
+	/** Signals the start of a test and returns once the agent has processed it. */
+	void testStarted(String testUniformPath) throws IOException;
+
+	/** Signals the end of a test and returns once the agent has processed it. */
+	void testFinished(String testUniformPath) throws IOException;
+}
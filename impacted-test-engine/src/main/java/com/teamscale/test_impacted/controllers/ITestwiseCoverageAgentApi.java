@@ -4,6 +4,7 @@ import okhttp3.HttpUrl;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Retrofit;
+import retrofit2.http.GET;
 import retrofit2.http.POST;
 import retrofit2.http.Path;
 
@@ -18,6 +19,10 @@ public interface ITestwiseCoverageAgentApi {
 	@POST("test/end/{testUniformPath}")
 	Call<ResponseBody> testFinished(@Path("testUniformPath") String testUniformPath);
 
+	/** The port on which the agent accepts test events over a persistent connection. */
+	@GET("test/event-port")
+	Call<ResponseBody> eventPort();
+
 	/**
 	 * Generates a {@link Retrofit} instance for the given service, which uses basic auth to authenticate against the
 	 * server and which sets the accept header to json.
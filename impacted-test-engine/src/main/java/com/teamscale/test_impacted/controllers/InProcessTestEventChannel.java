@@ -0,0 +1,96 @@
+package com.teamscale.test_impacted.controllers;
+
+import com.teamscale.report.testwise.TestEventProtocol;
+
+import javax.management.JMException;
+import javax.management.MBeanException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.RuntimeMBeanException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+/**
+ * Signals test events to an agent that runs in the same JVM by calling it directly via JMX, which avoids any network
+ * round trip. JMX is used since the agent runs in its own classloader, so its classes are not accessible here.
+ */
+/* package */ class InProcessTestEventChannel implements ITestEventChannel {
+
+	/** The signature of the agent's operations. */
+	private static final String[] SIGNATURE = {String.class.getName()};
+
+	/** The JMX server of this JVM. */
+	private final MBeanServer mBeanServer;
+
+	/** The name of the agent. */
+	private final ObjectName agentName;
+
+	private InProcessTestEventChannel(MBeanServer mBeanServer, ObjectName agentName) {
+		this.mBeanServer = mBeanServer;
+		this.agentName = agentName;
+	}
+
+	/**
+	 * Returns a channel to the agent in this JVM whose HTTP server listens at the given port or <code>null</code> if
+	 * there is no such agent.
+	 */
+	/* package */ static InProcessTestEventChannel findAgent(int port) {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName agentName = new ObjectName(TestEventProtocol.AGENT_OBJECT_NAME + port);
+			if (mBeanServer.isRegistered(agentName)) {
+				return new InProcessTestEventChannel(mBeanServer, agentName);
+			}
+		} catch (MalformedObjectNameException e) {
+			throw new AssertionError("The agent's JMX name is malformed", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a channel to the agent in this JVM regardless of its port or <code>null</code> if there is no such agent.
+	 * Used if the agent listens on an ephemeral port, e.g. because several test JVMs run in parallel.
+	 */
+	/* package */ static InProcessTestEventChannel findAgent() {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		try {
+			Set<ObjectName> agentNames = mBeanServer
+					.queryNames(new ObjectName(TestEventProtocol.AGENT_OBJECT_NAME + "*"), null);
+			if (agentNames.size() == 1) {
+				return new InProcessTestEventChannel(mBeanServer, agentNames.iterator().next());
+			}
+		} catch (MalformedObjectNameException e) {
+			throw new AssertionError("The agent's JMX name is malformed", e);
+		}
+		return null;
+	}
+
+	@Override
+	public void testStarted(String testUniformPath) throws IOException {
+		invoke("startTest", testUniformPath);
+	}
+
+	@Override
+	public void testFinished(String testUniformPath) throws IOException {
+		invoke("endTest", testUniformPath);
+	}
+
+	private void invoke(String operation, String testUniformPath) throws IOException {
+		try {
+			mBeanServer.invoke(agentName, operation, new Object[]{testUniformPath}, SIGNATURE);
+		} catch (MBeanException e) {
+			throw new IOException("The agent failed to process the test event: " + e.getTargetException(), e);
+		} catch (RuntimeMBeanException e) {
+			throw new IOException("The agent failed to process the test event: " + e.getTargetException(), e);
+		} catch (JMException | RuntimeException e) {
+			throw new IOException("Failed to call the agent via JMX", e);
+		}
+	}
+
+	@Override
+	public void close() {
+		// nothing to close
+	}
+}
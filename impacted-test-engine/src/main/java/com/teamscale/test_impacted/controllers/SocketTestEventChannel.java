@@ -0,0 +1,60 @@
+package com.teamscale.test_impacted.controllers;
+
+import com.teamscale.report.testwise.TestEventProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Signals test events over a persistent socket connection using the compact {@link TestEventProtocol}. Every event
+ * costs a single small write and read on an already established connection instead of a complete HTTP request.
+ * <p>
+ * Each event waits for the agent's reply, since coverage that is produced before the agent has processed the event
+ * would otherwise be attributed to the wrong test.
+ */
+/* package */ class SocketTestEventChannel implements ITestEventChannel {
+
+	/** The connection to the agent. */
+	private final Socket socket;
+
+	/** Reads the replies of the agent. */
+	private final DataInputStream input;
+
+	/** Writes the events to the agent. */
+	private final DataOutputStream output;
+
+	/** Constructor. Connects to the given host and port. */
+	/* package */ SocketTestEventChannel(InetAddress address, int port) throws IOException {
+		socket = new Socket(address, port);
+		socket.setTcpNoDelay(true);
+		input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+
+	@Override
+	public void testStarted(String testUniformPath) throws IOException {
+		send(TestEventProtocol.COMMAND_TEST_START, testUniformPath);
+	}
+
+	@Override
+	public void testFinished(String testUniformPath) throws IOException {
+		send(TestEventProtocol.COMMAND_TEST_END, testUniformPath);
+	}
+
+	private synchronized void send(byte command, String testUniformPath) throws IOException {
+		output.writeByte(command);
+		output.writeUTF(testUniformPath);
+		output.flush();
+		TestEventProtocol.readReply(input);
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+}
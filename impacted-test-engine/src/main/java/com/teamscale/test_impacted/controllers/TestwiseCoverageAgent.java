@@ -0,0 +1,102 @@
+package com.teamscale.test_impacted.controllers;
+
+import okhttp3.HttpUrl;
+import okhttp3.ResponseBody;
+import org.junit.platform.commons.logging.Logger;
+import org.junit.platform.commons.logging.LoggerFactory;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * A Teamscale agent in testwise coverage mode that is reachable at a certain URL or that runs in this JVM and listens
+ * on an ephemeral port.
+ */
+public class TestwiseCoverageAgent {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TestwiseCoverageAgent.class);
+
+	/** The URL (including port) at which the agent listens or <code>null</code> for the agent in this JVM. */
+	private final HttpUrl url;
+
+	/** The HTTP API of the agent or <code>null</code> for the agent in this JVM. */
+	private final ITestwiseCoverageAgentApi api;
+
+	/** Constructor. */
+	public TestwiseCoverageAgent(HttpUrl url) {
+		this.url = url;
+		this.api = ITestwiseCoverageAgentApi.createService(url);
+	}
+
+	private TestwiseCoverageAgent() {
+		this.url = null;
+		this.api = null;
+	}
+
+	/**
+	 * Returns the agent that runs in this JVM, whose port is not known in advance, e.g. since each of several parallel
+	 * test JVMs runs its own agent on an ephemeral port. This agent is always called via JMX.
+	 */
+	public static TestwiseCoverageAgent inThisJvm() {
+		return new TestwiseCoverageAgent();
+	}
+
+	/**
+	 * Opens a channel for signaling test events to the agent. Calls the agent directly if it runs in this JVM. Otherwise
+	 * uses a persistent socket connection if the agent runs on this machine and supports it and falls back to one HTTP
+	 * request per event, e.g. for remote or older agents or if the agent's event port is not reachable.
+	 *
+	 * @throws IllegalStateException if this is the {@linkplain #inThisJvm() agent in this JVM}, but none is running.
+	 */
+	public ITestEventChannel openEventChannel() {
+		if (url == null) {
+			InProcessTestEventChannel inProcessChannel = InProcessTestEventChannel.findAgent();
+			if (inProcessChannel == null) {
+				throw new IllegalStateException("No testwise coverage agent runs in this JVM.");
+			}
+			return inProcessChannel;
+		}
+
+		if (!isLocalhost()) {
+			// The agent only accepts persistent connections on its loopback address
+			return new HttpTestEventChannel(api);
+		}
+
+		InProcessTestEventChannel inProcessChannel = InProcessTestEventChannel.findAgent(url.port());
+		if (inProcessChannel != null) {
+			LOGGER.debug(() -> "Agent at " + url + " runs in this JVM. Calling it directly.");
+			return inProcessChannel;
+		}
+
+		try {
+			Response<ResponseBody> response = api.eventPort().execute();
+			if (response.isSuccessful() && response.body() != null) {
+				int port = Integer.parseInt(response.body().string().trim());
+				return new SocketTestEventChannel(InetAddress.getLoopbackAddress(), port);
+			}
+			LOGGER.debug(() -> "Agent at " + url + " does not support persistent connections. Using HTTP.");
+		} catch (IOException | NumberFormatException e) {
+			LOGGER.warn(e, () -> "Failed to connect to the test event port of the agent at " + url + ". Using HTTP.");
+		}
+		return new HttpTestEventChannel(api);
+	}
+
+	/** Returns whether the agent runs on this machine, i.e. may run in this JVM. */
+	private boolean isLocalhost() {
+		try {
+			return InetAddress.getByName(url.host()).isLoopbackAddress();
+		} catch (UnknownHostException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		if (url == null) {
+			return "agent in this JVM";
+		}
+		return url.toString();
+	}
+}
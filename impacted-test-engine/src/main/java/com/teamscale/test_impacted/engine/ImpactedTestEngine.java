@@ -2,6 +2,7 @@ package com.teamscale.test_impacted.engine;
 
 import com.teamscale.client.TestDetails;
 import com.teamscale.report.ReportUtils;
+import com.teamscale.report.testwise.ETestArtifactFormat;
 import com.teamscale.report.testwise.model.TestExecution;
 import com.teamscale.test_impacted.engine.executor.AvailableTests;
 import com.teamscale.test_impacted.engine.executor.TestExecutorRequest;
@@ -111,19 +112,24 @@ public class ImpactedTestEngine implements TestEngine {
 	}
 
 	private static void dumpTestExecutions(List<TestExecution> testExecutions, File reportDirectory) {
-		writeReport(new File(reportDirectory, "test-execution.json"), testExecutions);
+		writeReport(reportDirectory, ETestArtifactFormat.TEST_EXECUTION, testExecutions);
 	}
 
 	/** Writes the given test details to a report file. */
 	private static void dumpTestDetails(List<TestDetails> testDetails, File reportDirectory) {
-		writeReport(new File(reportDirectory, "test-list.json"), testDetails);
+		writeReport(reportDirectory, ETestArtifactFormat.TEST_LIST, testDetails);
 	}
 
-	private static <T> void writeReport(File file, T report) {
+	/**
+	 * Writes the report to a new file in the report directory. The file name is unique, so the reports of several test
+	 * JVMs that run in parallel (e.g. Gradle's test forks) do not overwrite each other.
+	 */
+	private static <T> void writeReport(File reportDirectory, ETestArtifactFormat format, T report) {
 		try {
+			File file = File.createTempFile(format.filePrefix + "-", "." + format.extension, reportDirectory);
 			ReportUtils.writeReportToFile(file, report);
 		} catch (IOException e) {
-			LOGGER.error(e, () -> "Error while writing report to file: " + file);
+			LOGGER.error(e, () -> "Error while writing " + format.readableName + " report to " + reportDirectory);
 		}
 	}
 }
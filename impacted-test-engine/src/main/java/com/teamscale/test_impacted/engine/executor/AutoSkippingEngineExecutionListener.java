@@ -76,7 +76,7 @@ public class AutoSkippingEngineExecutionListener implements EngineExecutionListe
 	}
 
 	@Override
-	public void dynamicTestRegistered(TestDescriptor testDescriptor) {
+	public synchronized void dynamicTestRegistered(TestDescriptor testDescriptor) {
 		dynamicallyRegisteredTestDescriptorIds.add(testDescriptor.getUniqueId());
 		delegateExecutionListener.dynamicTestRegistered(testDescriptor);
 	}
@@ -97,7 +97,7 @@ public class AutoSkippingEngineExecutionListener implements EngineExecutionListe
 	}
 
 	@Override
-	public void executionSkipped(TestDescriptor testDescriptor, String reason) {
+	public synchronized void executionSkipped(TestDescriptor testDescriptor, String reason) {
 		// Only occurs for impacted tests which are skipped.
 		TestDescriptor originalTestDescriptor = resolveOriginalTestDescriptor(testDescriptor);
 		finishImpactedTestDescriptor(originalTestDescriptor);
@@ -105,7 +105,7 @@ public class AutoSkippingEngineExecutionListener implements EngineExecutionListe
 	}
 
 	@Override
-	public void executionStarted(TestDescriptor testDescriptor) {
+	public synchronized void executionStarted(TestDescriptor testDescriptor) {
 		TestDescriptor originalTestDescriptor = resolveOriginalTestDescriptor(testDescriptor);
 		if (startedTestDescriptorIds.add(originalTestDescriptor.getUniqueId())) {
 			delegateExecutionListener.executionStarted(originalTestDescriptor);
@@ -113,7 +113,7 @@ public class AutoSkippingEngineExecutionListener implements EngineExecutionListe
 	}
 
 	@Override
-	public void executionFinished(TestDescriptor testDescriptor, TestExecutionResult testExecutionResult) {
+	public synchronized void executionFinished(TestDescriptor testDescriptor, TestExecutionResult testExecutionResult) {
 		if (dynamicallyRegisteredTestDescriptorIds.contains(testDescriptor.getUniqueId())) {
 			delegateExecutionListener.executionFinished(testDescriptor, testExecutionResult);
 			return;
@@ -5,7 +5,7 @@ import com.teamscale.client.CommitDescriptor;
 import com.teamscale.client.PrioritizableTestCluster;
 import com.teamscale.client.TeamscaleClient;
 import com.teamscale.report.testwise.model.TestExecution;
-import com.teamscale.test_impacted.controllers.ITestwiseCoverageAgentApi;
+import com.teamscale.test_impacted.controllers.TestwiseCoverageAgent;
 import com.teamscale.test_impacted.engine.options.ServerOptions;
 import com.teamscale.test_impacted.test_descriptor.TestDescriptorUtils;
 import org.junit.platform.commons.logging.Logger;
@@ -16,6 +16,7 @@ import retrofit2.Response;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -36,10 +37,10 @@ public class ImpactedTestsExecutor extends TestwiseCoverageCollectingTestExecuto
 
 	private File requestLogFile;
 
-	public ImpactedTestsExecutor(List<ITestwiseCoverageAgentApi> testwiseCoverageAgentApis, ServerOptions serverOptions,
-								 Long baseline, CommitDescriptor endCommit, String partition,
-								 File requestLogFile) {
-		super(testwiseCoverageAgentApis);
+	public ImpactedTestsExecutor(List<TestwiseCoverageAgent> testwiseCoverageAgents, Duration agentTimeout,
+								 ServerOptions serverOptions, Long baseline, CommitDescriptor endCommit,
+								 String partition, File requestLogFile) {
+		super(testwiseCoverageAgents, agentTimeout);
 		this.serverOptions = serverOptions;
 		this.baseline = baseline;
 		this.endCommit = endCommit;
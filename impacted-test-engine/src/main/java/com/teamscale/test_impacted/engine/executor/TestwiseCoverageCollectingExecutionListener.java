@@ -2,7 +2,7 @@ package com.teamscale.test_impacted.engine.executor;
 
 import com.teamscale.report.testwise.model.ETestExecutionResult;
 import com.teamscale.report.testwise.model.TestExecution;
-import com.teamscale.test_impacted.controllers.ITestwiseCoverageAgentApi;
+import com.teamscale.test_impacted.controllers.ITestEventChannel;
 import com.teamscale.test_impacted.test_descriptor.ITestDescriptorResolver;
 import com.teamscale.test_impacted.test_descriptor.TestDescriptorUtils;
 import org.junit.platform.commons.logging.Logger;
@@ -17,36 +17,39 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.teamscale.test_impacted.test_descriptor.TestDescriptorUtils.isTestRepresentative;
 
 /**
  * An execution listener which delegates events to another {@link EngineExecutionListener} and notifies Teamscale agents
- * collecting test wise coverage.
+ * collecting test wise coverage. Supports tests that are executed concurrently.
  */
 class TestwiseCoverageCollectingExecutionListener implements EngineExecutionListener {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(TestwiseCoverageCollectingExecutionListener.class);
 
-	/** An API service to signal test start and end to the agent. */
-	private List<ITestwiseCoverageAgentApi> testwiseCoverageAgentApis;
+	/** The channel to signal test start and end to the agents. */
+	private ITestEventChannel testEventChannel;
 
 	/** List of tests that have been executed, skipped or failed. */
-	private final List<TestExecution> testExecutions = new ArrayList<>();
+	private final List<TestExecution> testExecutions = Collections.synchronizedList(new ArrayList<>());
 
-	/** Time when the current test execution started. */
-	private long executionStartTime;
+	/** Times when the running test executions started by uniform path. */
+	private final Map<String, Long> executionStartTimes = new ConcurrentHashMap<>();
 
 	private final ITestDescriptorResolver testDescriptorResolver;
 
 	private final EngineExecutionListener delegateEngineExecutionListener;
 
-	TestwiseCoverageCollectingExecutionListener(List<ITestwiseCoverageAgentApi> testwiseCoverageAgentApis,
+	TestwiseCoverageCollectingExecutionListener(ITestEventChannel testEventChannel,
 												ITestDescriptorResolver testDescriptorResolver,
 												EngineExecutionListener engineExecutionListener) {
-		this.testwiseCoverageAgentApis = testwiseCoverageAgentApis;
+		this.testEventChannel = testEventChannel;
 		this.testDescriptorResolver = testDescriptorResolver;
 		this.delegateEngineExecutionListener = engineExecutionListener;
 	}
@@ -78,13 +81,11 @@ class TestwiseCoverageCollectingExecutionListener implements EngineExecutionList
 
 	private void startTest(String testUniformPath) {
 		try {
-			for (ITestwiseCoverageAgentApi apiService : testwiseCoverageAgentApis) {
-				apiService.testStarted(testUniformPath).execute();
-			}
+			testEventChannel.testStarted(testUniformPath);
 		} catch (IOException e) {
 			LOGGER.error(e, () -> "Error while calling service api.");
 		}
-		executionStartTime = System.currentTimeMillis();
+		executionStartTimes.put(testUniformPath, System.currentTimeMillis());
 	}
 
 	@Override
@@ -99,9 +100,7 @@ class TestwiseCoverageCollectingExecutionListener implements EngineExecutionList
 
 	private void endTest(TestExecutionResult testExecutionResult, String testUniformPath) {
 		try {
-			for (ITestwiseCoverageAgentApi apiService : testwiseCoverageAgentApis) {
-				apiService.testFinished(testUniformPath).execute();
-			}
+			testEventChannel.testFinished(testUniformPath);
 		} catch (IOException e) {
 			LOGGER.error(e, () -> "Error contacting test wise coverage agent.");
 		}
@@ -111,7 +110,8 @@ class TestwiseCoverageCollectingExecutionListener implements EngineExecutionList
 
 	private Optional<TestExecution> getTestExecution(TestExecutionResult testExecutionResult, String testUniformPath) {
 		long executionEndTime = System.currentTimeMillis();
-		long duration = executionEndTime - executionStartTime;
+		Long executionStartTime = executionStartTimes.remove(testUniformPath);
+		long duration = executionStartTime == null ? 0 : executionEndTime - executionStartTime;
 		String message = getStacktrace(testExecutionResult.getThrowable());
 		Status status = testExecutionResult.getStatus();
 
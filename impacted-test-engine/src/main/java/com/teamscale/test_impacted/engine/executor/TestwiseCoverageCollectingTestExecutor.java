@@ -1,33 +1,43 @@
 package com.teamscale.test_impacted.engine.executor;
 
 import com.teamscale.report.testwise.model.TestExecution;
-import com.teamscale.test_impacted.controllers.ITestwiseCoverageAgentApi;
+import com.teamscale.test_impacted.controllers.FanOutTestEventChannel;
+import com.teamscale.test_impacted.controllers.TestwiseCoverageAgent;
 import com.teamscale.test_impacted.test_descriptor.ITestDescriptorResolver;
 import com.teamscale.test_impacted.test_descriptor.TestDescriptorResolverRegistry;
 import org.junit.platform.engine.ExecutionRequest;
 
+import java.time.Duration;
 import java.util.List;
 
 /** Test executor that records test wise coverage and executes the full {@link TestExecutorRequest}. */
 public class TestwiseCoverageCollectingTestExecutor implements ITestExecutor {
 
-	private List<ITestwiseCoverageAgentApi> testwiseCoverageAgentApis;
+	private List<TestwiseCoverageAgent> testwiseCoverageAgents;
 
-	public TestwiseCoverageCollectingTestExecutor(List<ITestwiseCoverageAgentApi> testwiseCoverageAgentApis) {
-		this.testwiseCoverageAgentApis = testwiseCoverageAgentApis;
+	/** How long to wait for the agents to acknowledge a test event. */
+	private final Duration agentTimeout;
+
+	public TestwiseCoverageCollectingTestExecutor(List<TestwiseCoverageAgent> testwiseCoverageAgents,
+												  Duration agentTimeout) {
+		this.testwiseCoverageAgents = testwiseCoverageAgents;
+		this.agentTimeout = agentTimeout;
 	}
 
 	@Override
 	public List<TestExecution> execute(TestExecutorRequest testExecutorRequest) {
 		ITestDescriptorResolver testDescriptorResolver = TestDescriptorResolverRegistry
 				.getTestDescriptorResolver(testExecutorRequest.testEngine);
-		TestwiseCoverageCollectingExecutionListener executionListener = new TestwiseCoverageCollectingExecutionListener(
-				testwiseCoverageAgentApis,
-				testDescriptorResolver, testExecutorRequest.engineExecutionListener);
+		try (FanOutTestEventChannel testEventChannel = FanOutTestEventChannel
+				.open(testwiseCoverageAgents, agentTimeout)) {
+			TestwiseCoverageCollectingExecutionListener executionListener = new TestwiseCoverageCollectingExecutionListener(
+					testEventChannel,
+					testDescriptorResolver, testExecutorRequest.engineExecutionListener);
 
-		testExecutorRequest.testEngine.execute(new ExecutionRequest(testExecutorRequest.engineTestDescriptor,
-				executionListener, testExecutorRequest.configurationParameters));
+			testExecutorRequest.testEngine.execute(new ExecutionRequest(testExecutorRequest.engineTestDescriptor,
+					executionListener, testExecutorRequest.configurationParameters));
 
-		return executionListener.getTestExecutions();
+			return executionListener.getTestExecutions();
+		}
 	}
 }
@@ -32,6 +32,8 @@ public class TestEngineOptionUtils {
 				.endCommit(propertyReader.getCommitDescriptor("endCommit"))
 				.baseline(propertyReader.getLong("baseline"))
 				.agentUrls(propertyReader.getStringList("agentsUrls"))
+				.inProcessAgent(propertyReader.getBoolean("inProcessAgent"))
+				.agentTimeoutMillis(propertyReader.getLong("agentTimeoutMillis"))
 				.testEngineIds(propertyReader.getStringList("engines"))
 				.reportDirectory(propertyReader.getString("reportDirectory"))
 				.build();
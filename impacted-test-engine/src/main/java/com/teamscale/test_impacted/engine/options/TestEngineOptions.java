@@ -1,7 +1,7 @@
 package com.teamscale.test_impacted.engine.options;
 
 import com.teamscale.client.CommitDescriptor;
-import com.teamscale.test_impacted.controllers.ITestwiseCoverageAgentApi;
+import com.teamscale.test_impacted.controllers.TestwiseCoverageAgent;
 import com.teamscale.test_impacted.engine.ImpactedTestEngine;
 import com.teamscale.test_impacted.engine.ImpactedTestEngineConfiguration;
 import com.teamscale.test_impacted.engine.TestEngineRegistry;
@@ -14,6 +14,8 @@ import org.junit.platform.commons.util.Preconditions;
 import org.junit.platform.engine.TestEngine;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -44,8 +46,17 @@ public class TestEngineOptions {
 	/** The end commit used for TIA and for uploading the coverage. May not be null. */
 	private CommitDescriptor endCommit;
 
-	/** The URLs (including port) at which the agents listen. May be empty but not null. */
-	private List<ITestwiseCoverageAgentApi> testwiseCoverageAgentApis = Collections.emptyList();
+	/** The agents, which listen at the configured URLs (including port). May be empty but not null. */
+	private List<TestwiseCoverageAgent> testwiseCoverageAgents = Collections.emptyList();
+
+	/**
+	 * Whether to additionally use the agent that runs in this JVM on an ephemeral port, e.g. in each of several
+	 * parallel test JVMs. Defaults to false.
+	 */
+	private boolean inProcessAgent = false;
+
+	/** How long to wait for the agents to acknowledge a test start or end. Defaults to five seconds. */
+	private Duration agentTimeout = Duration.ofSeconds(5);
 
 	/** The test engine ids of all {@link TestEngine}s to use. If empty all available {@link TestEngine}s are used. */
 	private Set<String> testEngineIds = Collections.emptySet();
@@ -80,11 +91,11 @@ public class TestEngineOptions {
 			return new DelegatingTestExecutor();
 		}
 		if (isRunAllTests()) {
-			return new TestwiseCoverageCollectingTestExecutor(testwiseCoverageAgentApis);
+			return new TestwiseCoverageCollectingTestExecutor(testwiseCoverageAgents, agentTimeout);
 		}
 
-		return new ImpactedTestsExecutor(testwiseCoverageAgentApis, serverOptions, baseline, endCommit, partition,
-				new File(reportDirectory, "server-request.txt"));
+		return new ImpactedTestsExecutor(testwiseCoverageAgents, agentTimeout, serverOptions, baseline, endCommit,
+				partition, new File(reportDirectory, "server-request.txt"));
 	}
 
 	/** Returns the builder for {@link TestEngineOptions}. */
@@ -136,15 +147,31 @@ public class TestEngineOptions {
 			return this;
 		}
 
-		/** @see #testwiseCoverageAgentApis */
+		/** @see #testwiseCoverageAgents */
 		public Builder agentUrls(List<String> agentUrls) {
-			testEngineOptions.testwiseCoverageAgentApis = agentUrls.stream()
+			testEngineOptions.testwiseCoverageAgents = agentUrls.stream()
 					.map(HttpUrl::parse)
-					.map(ITestwiseCoverageAgentApi::createService)
+					.map(TestwiseCoverageAgent::new)
 					.collect(Collectors.toList());
 			return this;
 		}
 
+		/** @see #inProcessAgent */
+		public Builder inProcessAgent(Boolean inProcessAgent) {
+			if (inProcessAgent != null) {
+				testEngineOptions.inProcessAgent = inProcessAgent;
+			}
+			return this;
+		}
+
+		/** @see #agentTimeout */
+		public Builder agentTimeoutMillis(Long agentTimeoutMillis) {
+			if (agentTimeoutMillis != null) {
+				testEngineOptions.agentTimeout = Duration.ofMillis(agentTimeoutMillis);
+			}
+			return this;
+		}
+
 		/** @see #testEngineIds */
 		public Builder testEngineIds(List<String> testEngineIds) {
 			testEngineOptions.testEngineIds = new HashSet<>(testEngineIds);
@@ -161,11 +188,16 @@ public class TestEngineOptions {
 		public TestEngineOptions build() {
 			Preconditions.notNull(testEngineOptions.endCommit, "End commit must be set.");
 			Preconditions.notNull(testEngineOptions.serverOptions, "Server options must be set.");
-			Preconditions.notNull(testEngineOptions.testwiseCoverageAgentApis, "Agent urls may be empty but not null.");
+			Preconditions.notNull(testEngineOptions.testwiseCoverageAgents, "Agent urls may be empty but not null.");
 			Preconditions.notNull(testEngineOptions.reportDirectory, "Report directory must be set.");
 			Preconditions.condition(
 					testEngineOptions.reportDirectory.isDirectory() && testEngineOptions.reportDirectory.canWrite(),
 					"Report directory must be readable directory: " + testEngineOptions.reportDirectory);
+			if (testEngineOptions.inProcessAgent) {
+				List<TestwiseCoverageAgent> agents = new ArrayList<>(testEngineOptions.testwiseCoverageAgents);
+				agents.add(TestwiseCoverageAgent.inThisJvm());
+				testEngineOptions.testwiseCoverageAgents = agents;
+			}
 			return testEngineOptions;
 		}
 	}
@@ -0,0 +1,80 @@
+package com.teamscale.test_impacted.controllers;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Tests the {@link FanOutTestEventChannel}. */
+public class FanOutTestEventChannelTest {
+
+	/**
+	 * Tests that the end of a test whose start was sent to a slow agent is queued behind the start instead of being
+	 * dropped, whereas the end of a test whose start was skipped is dropped.
+	 */
+	@Test
+	public void endOfStartedTestIsSentToSlowAgent() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingChannel slowAgent = new RecordingChannel(release);
+		FanOutTestEventChannel channel = FanOutTestEventChannel
+				.create(Collections.singletonMap("slow agent", slowAgent), Duration.ofMillis(100));
+
+		assertThatThrownBy(() -> channel.testStarted("test1")).isInstanceOf(IOException.class);
+		// Skipped, since the agent is still processing the start of test1
+		channel.testStarted("test2");
+		channel.testFinished("test2");
+		assertThatThrownBy(() -> channel.testFinished("test1")).isInstanceOf(IOException.class);
+
+		release.countDown();
+		channel.close();
+
+		assertThat(slowAgent.events).containsExactly("start test1", "end test1");
+	}
+
+	/** Records the events it receives. Blocks each event until it is released. */
+	private static class RecordingChannel implements ITestEventChannel {
+
+		/** The received events. */
+		private final List<String> events = new CopyOnWriteArrayList<>();
+
+		/** Blocks the events until it is counted down. */
+		private final CountDownLatch release;
+
+		private RecordingChannel(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void testStarted(String testUniformPath) throws IOException {
+			awaitRelease();
+			events.add("start " + testUniformPath);
+		}
+
+		@Override
+		public void testFinished(String testUniformPath) throws IOException {
+			awaitRelease();
+			events.add("end " + testUniformPath);
+		}
+
+		/** Waits until the events are released. */
+		private void awaitRelease() throws IOException {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IOException("Interrupted", e);
+			}
+		}
+
+		@Override
+		public void close() {
+			// Nothing to close
+		}
+	}
+}
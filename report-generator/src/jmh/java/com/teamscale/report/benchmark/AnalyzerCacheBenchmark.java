@@ -0,0 +1,57 @@
+package com.teamscale.report.benchmark;
+
+import com.teamscale.report.EDuplicateClassFileBehavior;
+import com.teamscale.report.testwise.jacoco.cache.AnalyzerCache;
+import com.teamscale.report.testwise.jacoco.cache.ProbesCache;
+import com.teamscale.report.util.ILogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the analysis of class files for testwise coverage with {@link AnalyzerCache#analyzeAll(File)}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AnalyzerCacheBenchmark {
+
+	/** The logger. */
+	private static final ILogger LOGGER = new NullLogger();
+
+	/** The number of classes in the analyzed jar. */
+	@Param({"1000"})
+	public int classCount;
+
+	/** The jar with the synthetic classes. */
+	private File jarFile;
+
+	/** Creates the jar. */
+	@Setup
+	public void createCorpus() throws IOException {
+		jarFile = File.createTempFile("corpus", ".jar");
+		new SyntheticCorpus(classCount, 20, 10, 5).writeJar(jarFile);
+	}
+
+	/** Deletes the jar. */
+	@TearDown
+	public void deleteCorpus() {
+		jarFile.delete();
+	}
+
+	/** Analyzes all classes of the jar. */
+	@Benchmark
+	public ProbesCache analyzeAll() throws IOException {
+		ProbesCache probesCache = new ProbesCache(LOGGER, EDuplicateClassFileBehavior.IGNORE);
+		new AnalyzerCache(probesCache, location -> true, LOGGER).analyzeAll(jarFile);
+		return probesCache;
+	}
+}
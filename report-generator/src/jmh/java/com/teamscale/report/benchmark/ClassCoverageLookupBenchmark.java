@@ -0,0 +1,73 @@
+package com.teamscale.report.benchmark;
+
+import com.teamscale.report.EDuplicateClassFileBehavior;
+import com.teamscale.report.testwise.jacoco.cache.AnalyzerCache;
+import com.teamscale.report.testwise.jacoco.cache.ClassCoverageLookup;
+import com.teamscale.report.testwise.jacoco.cache.CoverageGenerationException;
+import com.teamscale.report.testwise.jacoco.cache.ProbesCache;
+import com.teamscale.report.util.ILogger;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of probes to covered lines with {@link ClassCoverageLookup#getFileCoverage(ExecutionData,
+ * ILogger)} (via {@link ProbesCache#getCoverage}) for the execution data of a single test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClassCoverageLookupBenchmark {
+
+	/** The logger. */
+	private static final ILogger LOGGER = new NullLogger();
+
+	/** The number of classes. */
+	@Param({"1000"})
+	public int classCount;
+
+	/** The number of lines per method, which determines the number of probes per class. */
+	@Param({"5", "50"})
+	public int linesPerMethod;
+
+	/** The analyzed classes. */
+	private ProbesCache probesCache;
+
+	/** The execution data of all classes. */
+	private ExecutionDataStore store;
+
+	/** Analyzes the classes and creates the execution data. */
+	@Setup
+	public void createCorpus() throws IOException {
+		SyntheticCorpus corpus = new SyntheticCorpus(classCount, 20, 10, linesPerMethod);
+		File jarFile = File.createTempFile("corpus", ".jar");
+		try {
+			corpus.writeJar(jarFile);
+			probesCache = new ProbesCache(LOGGER, EDuplicateClassFileBehavior.IGNORE);
+			new AnalyzerCache(probesCache, location -> true, LOGGER).analyzeAll(jarFile);
+		} finally {
+			jarFile.delete();
+		}
+		store = corpus.createExecutionData(1);
+	}
+
+	/** Converts the probes of all classes. */
+	@Benchmark
+	public void getFileCoverage(Blackhole blackhole) throws CoverageGenerationException {
+		for (ExecutionData executionData : store.getContents()) {
+			blackhole.consume(probesCache.getCoverage(executionData, location -> true));
+		}
+	}
+}
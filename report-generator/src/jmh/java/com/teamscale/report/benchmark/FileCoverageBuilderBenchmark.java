@@ -0,0 +1,61 @@
+package com.teamscale.report.benchmark;
+
+import com.teamscale.report.testwise.model.LineRange;
+import com.teamscale.report.testwise.model.builder.FileCoverageBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the compaction of covered lines to line ranges in {@link FileCoverageBuilder}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileCoverageBuilderBenchmark {
+
+	/** The number of lines in the file of which about half are covered. */
+	@Param({"100", "10000"})
+	public int lineCount;
+
+	/** The covered lines. */
+	private Set<Integer> coveredLines;
+
+	/** Coverage with the {@link #coveredLines}. */
+	private FileCoverageBuilder fileCoverage;
+
+	/** Creates the covered lines. */
+	@Setup
+	public void createLines() {
+		Random random = new Random(42);
+		coveredLines = new HashSet<>();
+		for (int line = 1; line <= lineCount; line++) {
+			if (random.nextBoolean()) {
+				coveredLines.add(line);
+			}
+		}
+		fileCoverage = new FileCoverageBuilder("com/example", "Example.java");
+		fileCoverage.addLines(coveredLines);
+	}
+
+	/** Compacts a set of lines. */
+	@Benchmark
+	public List<LineRange> compactifyToRanges() {
+		return FileCoverageBuilder.compactifyToRanges(coveredLines);
+	}
+
+	/** Creates the line ranges of the report from the coverage. */
+	@Benchmark
+	public String computeCompactifiedRangesAsString() {
+		return fileCoverage.computeCompactifiedRangesAsString();
+	}
+}
@@ -0,0 +1,88 @@
+package com.teamscale.report.benchmark;
+
+import com.teamscale.report.EDuplicateClassFileBehavior;
+import com.teamscale.report.testwise.jacoco.JaCoCoTestwiseReportGenerator;
+import com.teamscale.report.testwise.jacoco.cache.CoverageGenerationException;
+import com.teamscale.report.testwise.model.TestwiseCoverage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the conversion of multiple execution data files (e.g. one per test fork) with
+ * {@link JaCoCoTestwiseReportGenerator#convert(java.util.Collection)} scales with the parallelism.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JaCoCoTestwiseReportGeneratorBenchmark {
+
+	/** The number of threads used for the conversion. */
+	@Param({"1", "2", "4", "8"})
+	public int parallelism;
+
+	/** The number of execution data files. */
+	@Param({"64"})
+	public int fileCount;
+
+	/** The number of tests per execution data file. */
+	@Param({"20"})
+	public int testsPerFile;
+
+	/** The jar with the synthetic classes. */
+	private File jarFile;
+
+	/** The execution data files. */
+	private final List<File> execFiles = new ArrayList<>();
+
+	/** The generator with the analyzed classes. */
+	private JaCoCoTestwiseReportGenerator generator;
+
+	/** Creates the jar and the execution data files and analyzes the classes. */
+	@Setup
+	public void createCorpus() throws IOException, CoverageGenerationException {
+		SyntheticCorpus corpus = new SyntheticCorpus(500, 20, 10, 5);
+		jarFile = File.createTempFile("corpus", ".jar");
+		corpus.writeJar(jarFile);
+		for (int file = 0; file < fileCount; file++) {
+			List<String> testIds = new ArrayList<>();
+			for (int test = 0; test < testsPerFile; test++) {
+				testIds.add("com/example/Test" + file + "/test" + test + "()");
+			}
+			File execFile = File.createTempFile("corpus", ".exec");
+			corpus.writeTestwiseExecFile(execFile, testIds, 0.05);
+			execFiles.add(execFile);
+		}
+		generator = new JaCoCoTestwiseReportGenerator(Collections.singletonList(jarFile), location -> true,
+				EDuplicateClassFileBehavior.IGNORE, parallelism, null, new NullLogger());
+	}
+
+	/** Closes the generator and deletes the jar and the execution data files. */
+	@TearDown
+	public void deleteCorpus() {
+		generator.close();
+		jarFile.delete();
+		for (File execFile : execFiles) {
+			execFile.delete();
+		}
+	}
+
+	/** Converts all execution data files. */
+	@Benchmark
+	public TestwiseCoverage convert() throws IOException {
+		return generator.convert(execFiles);
+	}
+}
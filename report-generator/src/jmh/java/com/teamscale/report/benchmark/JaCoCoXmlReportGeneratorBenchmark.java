@@ -0,0 +1,85 @@
+package com.teamscale.report.benchmark;
+
+import com.teamscale.report.EDuplicateClassFileBehavior;
+import com.teamscale.report.jacoco.JaCoCoXmlReportGenerator;
+import com.teamscale.report.jacoco.dump.Dump;
+import com.teamscale.report.util.ILogger;
+import org.jacoco.core.data.SessionInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the XML report generation with {@link JaCoCoXmlReportGenerator#convert(Dump)}, both for a single
+ * conversion (convert tool) and for repeated conversions with the same generator (interval dumps of the agent).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JaCoCoXmlReportGeneratorBenchmark {
+
+	/** The logger. */
+	private static final ILogger LOGGER = new NullLogger();
+
+	/** The number of classes. */
+	@Param({"1000"})
+	public int classCount;
+
+	/** The fraction of classes that have been executed. */
+	@Param({"0.1", "0.5"})
+	public double executedClassFraction;
+
+	/** The jar with the synthetic classes. */
+	private File jarFile;
+
+	/** The converted dump. */
+	private Dump dump;
+
+	/** Generator that is reused for all conversions. */
+	private JaCoCoXmlReportGenerator reusedGenerator;
+
+	/** Creates the jar and the dump. */
+	@Setup
+	public void createCorpus() throws IOException {
+		SyntheticCorpus corpus = new SyntheticCorpus(classCount, 20, 10, 5);
+		jarFile = File.createTempFile("corpus", ".jar");
+		corpus.writeJar(jarFile);
+		dump = new Dump(new SessionInfo("benchmark", 0, 0), corpus.createExecutionData(executedClassFraction));
+		reusedGenerator = createGenerator();
+	}
+
+	/** Deletes the jar. */
+	@TearDown
+	public void deleteCorpus() {
+		jarFile.delete();
+	}
+
+	/** Creates a new generator for the jar. */
+	private JaCoCoXmlReportGenerator createGenerator() {
+		return new JaCoCoXmlReportGenerator(Collections.singletonList(jarFile), location -> true,
+				EDuplicateClassFileBehavior.IGNORE, LOGGER);
+	}
+
+	/** Converts the dump with a new generator. */
+	@Benchmark
+	public String convertOnce() throws IOException {
+		return createGenerator().convert(dump);
+	}
+
+	/** Converts the dump with a generator that has already converted dumps before. */
+	@Benchmark
+	public String convertRepeatedly() throws IOException {
+		return reusedGenerator.convert(dump);
+	}
+}
@@ -0,0 +1,37 @@
+package com.teamscale.report.benchmark;
+
+import com.teamscale.report.util.ILogger;
+
+/** Discards all log messages, so logging does not distort the measurements. */
+public class NullLogger implements ILogger {
+
+	@Override
+	public void debug(String message) {
+		// ignored
+	}
+
+	@Override
+	public void info(String message) {
+		// ignored
+	}
+
+	@Override
+	public void warn(String message) {
+		// ignored
+	}
+
+	@Override
+	public void warn(String message, Throwable throwable) {
+		// ignored
+	}
+
+	@Override
+	public void error(Throwable throwable) {
+		// ignored
+	}
+
+	@Override
+	public void error(String message, Throwable throwable) {
+		// ignored
+	}
+}
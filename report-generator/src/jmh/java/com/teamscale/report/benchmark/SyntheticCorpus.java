@@ -0,0 +1,154 @@
+package com.teamscale.report.benchmark;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.ClassProbesVisitor;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates class files and matching execution data for the benchmarks, so the benchmarks do not depend on the
+ * structure of a real application. The generated corpus is deterministic for the same parameters.
+ * <p>
+ * Each class consists of static methods with one {@code if} statement per line, so every line has its own probes.
+ */
+public class SyntheticCorpus {
+
+	/** Seed for all random decisions, so consecutive benchmark runs use the same corpus. */
+	private static final long SEED = 42;
+
+	/** Mapping from class name (with / as separators) to the class file contents. */
+	private final Map<String, byte[]> classes = new LinkedHashMap<>();
+
+	/** Mapping from class name to the number of probes JaCoCo inserts into the class. */
+	private final Map<String, Integer> probeCounts = new LinkedHashMap<>();
+
+	/** Random numbers for the execution data. */
+	private final Random random = new Random(SEED);
+
+	/** Creates a corpus with the given number of classes in the given number of packages. */
+	public SyntheticCorpus(int classCount, int packageCount, int methodsPerClass, int linesPerMethod) {
+		for (int i = 0; i < classCount; i++) {
+			String className = "com/example/package" + (i % packageCount) + "/Class" + i;
+			byte[] classFile = createClass(className, methodsPerClass, linesPerMethod);
+			classes.put(className, classFile);
+			probeCounts.put(className, countProbes(classFile));
+		}
+	}
+
+	/** Creates a class with the given number of methods. */
+	private static byte[] createClass(String className, int methodCount, int linesPerMethod) {
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null);
+		writer.visitSource(className.substring(className.lastIndexOf('/') + 1) + ".java", null);
+		int line = 1;
+		for (int method = 0; method < methodCount; method++) {
+			MethodVisitor methodVisitor = writer
+					.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "method" + method, "(I)I", null, null);
+			methodVisitor.visitCode();
+			for (int i = 0; i < linesPerMethod; i++) {
+				Label lineStart = new Label();
+				Label skip = new Label();
+				methodVisitor.visitLabel(lineStart);
+				methodVisitor.visitLineNumber(line++, lineStart);
+				methodVisitor.visitVarInsn(Opcodes.ILOAD, 0);
+				methodVisitor.visitJumpInsn(Opcodes.IFEQ, skip);
+				methodVisitor.visitIincInsn(0, -1);
+				methodVisitor.visitLabel(skip);
+			}
+			Label returnLabel = new Label();
+			methodVisitor.visitLabel(returnLabel);
+			methodVisitor.visitLineNumber(line++, returnLabel);
+			methodVisitor.visitVarInsn(Opcodes.ILOAD, 0);
+			methodVisitor.visitInsn(Opcodes.IRETURN);
+			methodVisitor.visitMaxs(0, 0);
+			methodVisitor.visitEnd();
+		}
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	/** Returns the number of probes JaCoCo inserts into the given class. */
+	private static int countProbes(byte[] classFile) {
+		int[] probeCount = new int[1];
+		ClassProbesVisitor counter = new ClassProbesVisitor() {
+			@Override
+			public MethodProbesVisitor visitMethod(int access, String name, String descriptor, String signature,
+												   String[] exceptions) {
+				return new MethodProbesVisitor() {
+				};
+			}
+
+			@Override
+			public void visitTotalProbeCount(int count) {
+				probeCount[0] = count;
+			}
+		};
+		new ClassReader(classFile).accept(new ClassProbesAdapter(counter, false), 0);
+		return probeCount[0];
+	}
+
+	/** Writes all classes to the given jar file. */
+	public void writeJar(File jarFile) throws IOException {
+		try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(jarFile))) {
+			for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+				output.putNextEntry(new ZipEntry(entry.getKey() + ".class"));
+				output.write(entry.getValue());
+				output.closeEntry();
+			}
+		}
+	}
+
+	/**
+	 * Creates execution data in which the given fraction of classes has been executed. In each executed class, about
+	 * half of the probes are hit.
+	 */
+	public ExecutionDataStore createExecutionData(double executedClassFraction) {
+		ExecutionDataStore store = new ExecutionDataStore();
+		for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+			if (random.nextDouble() >= executedClassFraction) {
+				continue;
+			}
+			boolean[] probes = new boolean[probeCounts.get(entry.getKey())];
+			for (int i = 0; i < probes.length; i++) {
+				probes[i] = random.nextBoolean();
+			}
+			store.put(new ExecutionData(CRC64.classId(entry.getValue()), entry.getKey(), probes));
+		}
+		return store;
+	}
+
+	/**
+	 * Writes an exec file with one session per test in which the given fraction of classes has been executed, as
+	 * written by the agent in testwise mode.
+	 */
+	public void writeTestwiseExecFile(File execFile, List<String> testIds,
+									  double executedClassFraction) throws IOException {
+		try (OutputStream output = new FileOutputStream(execFile)) {
+			ExecutionDataWriter writer = new ExecutionDataWriter(output);
+			for (String testId : testIds) {
+				writer.visitSessionInfo(new SessionInfo(testId, 0, 0));
+				createExecutionData(executedClassFraction).accept(writer);
+			}
+		}
+	}
+}
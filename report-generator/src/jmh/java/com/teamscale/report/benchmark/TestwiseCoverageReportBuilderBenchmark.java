@@ -0,0 +1,84 @@
+package com.teamscale.report.benchmark;
+
+import com.teamscale.client.TestDetails;
+import com.teamscale.report.EDuplicateClassFileBehavior;
+import com.teamscale.report.testwise.jacoco.JaCoCoTestwiseReportGenerator;
+import com.teamscale.report.testwise.jacoco.cache.CoverageGenerationException;
+import com.teamscale.report.testwise.model.ETestExecutionResult;
+import com.teamscale.report.testwise.model.TestExecution;
+import com.teamscale.report.testwise.model.TestwiseCoverage;
+import com.teamscale.report.testwise.model.TestwiseCoverageReport;
+import com.teamscale.report.testwise.model.builder.TestwiseCoverageReportBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of the testwise coverage report with
+ * {@link TestwiseCoverageReportBuilder#createFrom(java.util.Collection, java.util.Collection, java.util.Collection)}
+ * from the coverage of many tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TestwiseCoverageReportBuilderBenchmark {
+
+	/** The number of tests. */
+	@Param({"1000"})
+	public int testCount;
+
+	/** The coverage of all tests. */
+	private TestwiseCoverage testwiseCoverage;
+
+	/** The details of all tests. */
+	private final List<TestDetails> testDetails = new ArrayList<>();
+
+	/** The executions of all tests. */
+	private final List<TestExecution> testExecutions = new ArrayList<>();
+
+	/** Converts synthetic execution data to testwise coverage. */
+	@Setup
+	public void createCorpus() throws IOException, CoverageGenerationException {
+		List<String> testIds = new ArrayList<>();
+		for (int i = 0; i < testCount; i++) {
+			String testId = "com/example/Test" + (i / 10) + "/test" + i + "()";
+			testIds.add(testId);
+			testDetails.add(new TestDetails(testId, "com/example/Test" + (i / 10) + ".java", "content"));
+			testExecutions.add(new TestExecution(testId, i, ETestExecutionResult.PASSED));
+		}
+
+		SyntheticCorpus corpus = new SyntheticCorpus(500, 20, 10, 5);
+		File jarFile = File.createTempFile("corpus", ".jar");
+		File execFile = File.createTempFile("corpus", ".exec");
+		try {
+			corpus.writeJar(jarFile);
+			corpus.writeTestwiseExecFile(execFile, testIds, 0.05);
+			try (JaCoCoTestwiseReportGenerator generator = new JaCoCoTestwiseReportGenerator(
+					Collections.singletonList(jarFile), location -> true, EDuplicateClassFileBehavior.IGNORE,
+					new NullLogger())) {
+				testwiseCoverage = generator.convert(execFile);
+			}
+		} finally {
+			jarFile.delete();
+			execFile.delete();
+		}
+	}
+
+	/** Creates the report. */
+	@Benchmark
+	public TestwiseCoverageReport createFrom() {
+		return TestwiseCoverageReportBuilder.createFrom(testDetails, testwiseCoverage.getTests(), testExecutions);
+	}
+}
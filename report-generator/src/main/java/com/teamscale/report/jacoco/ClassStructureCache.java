@@ -0,0 +1,236 @@
+/*-------------------------------------------------------------------------+
+|                                                                          |
+| Copyright (c) 2009-2019 CQSE GmbH                                        |
+|                                                                          |
++-------------------------------------------------------------------------*/
+package com.teamscale.report.jacoco;
+
+import com.teamscale.report.util.ILogger;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Caches the analyzed structure of class files across multiple conversions of the same class files, e.g. for the
+ * interval dumps of the agent.
+ * <p>
+ * Like the probes cache of the testwise coverage conversion, classes are identified by their class ID (CRC64 of the
+ * class file). The coverage of a class without any executed probes only depends on the class file, so it is analyzed
+ * once and reused in later conversions. Only classes with executed probes are analyzed again with the current
+ * execution data.
+ * <p>
+ * Additionally, the class IDs contained in every class file or archive are remembered. Files that did not change since
+ * the last conversion and contain no class with executed probes are not read at all.
+ */
+/* package */ class ClassStructureCache {
+
+	/** The filter for the analyzed class files. */
+	private final Predicate<String> locationIncludeFilter;
+
+	/** The logger. */
+	private final ILogger logger;
+
+	/** Mapping from class ID to the coverage of the class without any executed probes. */
+	private Map<Long, IClassCoverage> uncoveredClasses = new HashMap<>();
+
+	/** Mapping from the path of an analyzed class file or archive to the classes it contained. */
+	private Map<String, AnalyzedFile> analyzedFiles = new HashMap<>();
+
+	/** Constructor. */
+	/* package */ ClassStructureCache(Predicate<String> locationIncludeFilter, ILogger logger) {
+		this.locationIncludeFilter = locationIncludeFilter;
+		this.logger = logger;
+	}
+
+	/**
+	 * Analyzes the given class files and archives and passes the coverage of all classes with respect to the given
+	 * execution data to the given coverage builder. The cache is only updated if the analysis succeeds.
+	 */
+	/* package */ synchronized void analyzeAll(List<File> codeDirectoriesOrArchives, ExecutionDataStore store,
+											   CoverageBuilder coverageBuilder) throws IOException {
+		Conversion conversion = new Conversion(store, coverageBuilder);
+		CachingAnalyzer analyzer = new CachingAnalyzer(conversion);
+		for (File file : codeDirectoriesOrArchives) {
+			analyzer.analyzeAll(file);
+		}
+		uncoveredClasses = conversion.nextUncoveredClasses;
+		analyzedFiles = conversion.nextAnalyzedFiles;
+	}
+
+	/** The classes contained in a single class file or archive. */
+	private static class AnalyzedFile {
+
+		/** The last modification timestamp of the file when it was analyzed. */
+		private final long lastModified;
+
+		/** The size of the file when it was analyzed. */
+		private final long length;
+
+		/** The IDs of all classes in the file for which coverage has been reported. */
+		private final List<Long> classIds = new ArrayList<>();
+
+		private AnalyzedFile(File file) {
+			this.lastModified = file.lastModified();
+			this.length = file.length();
+		}
+
+		/** Returns whether the given file has not been modified since it has been analyzed. */
+		private boolean isUnchanged(File file) {
+			return file.lastModified() == lastModified && file.length() == length;
+		}
+	}
+
+	/**
+	 * The state of a single conversion. Forwards the coverage of all classes to the coverage builder and records the
+	 * classes for the next conversion. All classes seen during the conversion are collected in new maps, so classes
+	 * that have been removed from the analyzed files are evicted from the cache.
+	 */
+	private class Conversion implements ICoverageVisitor {
+
+		/** The execution data of the current conversion. */
+		private final ExecutionDataStore store;
+
+		/** The coverage builder of the current conversion. */
+		private final ICoverageVisitor coverageBuilder;
+
+		/** The contents of {@link #uncoveredClasses} after the conversion. */
+		private final Map<Long, IClassCoverage> nextUncoveredClasses = new HashMap<>();
+
+		/** The contents of {@link #analyzedFiles} after the conversion. */
+		private final Map<String, AnalyzedFile> nextAnalyzedFiles = new HashMap<>();
+
+		/** The file that is currently analyzed. */
+		private AnalyzedFile currentFile;
+
+		private Conversion(ExecutionDataStore store, ICoverageVisitor coverageBuilder) {
+			this.store = store;
+			this.coverageBuilder = coverageBuilder;
+		}
+
+		/**
+		 * Returns the cached coverage for the given class if it is still valid for the current execution data or null
+		 * if the class must be analyzed.
+		 */
+		private IClassCoverage getReusableCoverage(long classId) {
+			IClassCoverage coverage = uncoveredClasses.get(classId);
+			if (coverage == null || isCovered(classId)) {
+				return null;
+			}
+			if (store.get(classId) == null && store.contains(coverage.getName())) {
+				// The execution data only contains a different version of the class, which JaCoCo reports as "no match"
+				return null;
+			}
+			return coverage;
+		}
+
+		/** Returns whether the execution data contains executed probes for the given class. */
+		private boolean isCovered(long classId) {
+			ExecutionData executionData = store.get(classId);
+			return executionData != null && executionData.hasHits();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visitCoverage(IClassCoverage coverage) {
+			if (currentFile != null) {
+				currentFile.classIds.add(coverage.getId());
+			}
+			if (!isCovered(coverage.getId()) && !coverage.isNoMatch()) {
+				nextUncoveredClasses.put(coverage.getId(), coverage);
+			}
+			coverageBuilder.visitCoverage(coverage);
+		}
+	}
+
+	/** {@link FilteringAnalyzer} that uses and fills the cache during a single {@link Conversion}. */
+	private class CachingAnalyzer extends FilteringAnalyzer {
+
+		/** The current conversion. */
+		private final Conversion conversion;
+
+		private CachingAnalyzer(Conversion conversion) {
+			super(conversion.store, conversion, locationIncludeFilter, logger);
+			this.conversion = conversion;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int analyzeAll(File file) throws IOException {
+			if (file.isDirectory()) {
+				return super.analyzeAll(file);
+			}
+
+			AnalyzedFile analyzedFile = analyzedFiles.get(file.getPath());
+			if (analyzedFile != null && analyzedFile.isUnchanged(file) && reuseAllClasses(analyzedFile,
+					file.getPath())) {
+				return analyzedFile.classIds.size();
+			}
+
+			conversion.currentFile = new AnalyzedFile(file);
+			try {
+				return super.analyzeAll(file);
+			} finally {
+				conversion.nextAnalyzedFiles.put(file.getPath(), conversion.currentFile);
+				conversion.currentFile = null;
+			}
+		}
+
+		/**
+		 * Reuses the cached coverage of all classes of the given file without reading it. Returns false without
+		 * reusing any coverage if the file contains a class that needs to be analyzed.
+		 */
+		private boolean reuseAllClasses(AnalyzedFile analyzedFile, String location) throws IOException {
+			List<IClassCoverage> cachedCoverage = new ArrayList<>();
+			for (long classId : analyzedFile.classIds) {
+				IClassCoverage coverage = conversion.getReusableCoverage(classId);
+				if (coverage == null) {
+					return false;
+				}
+				cachedCoverage.add(coverage);
+			}
+
+			conversion.currentFile = new AnalyzedFile(new File(location));
+			try {
+				for (IClassCoverage coverage : cachedCoverage) {
+					reuse(coverage, location);
+				}
+			} finally {
+				conversion.nextAnalyzedFiles.put(location, conversion.currentFile);
+				conversion.currentFile = null;
+			}
+			return true;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void analyzeClass(byte[] buffer, String location) throws IOException {
+			IClassCoverage coverage = conversion.getReusableCoverage(CRC64.classId(buffer));
+			if (coverage != null) {
+				reuse(coverage, location);
+			} else {
+				super.analyzeClass(buffer, location);
+			}
+		}
+
+		/** Passes the given cached coverage on as if the class had been analyzed. */
+		private void reuse(IClassCoverage coverage, String location) throws IOException {
+			try {
+				conversion.visitCoverage(coverage);
+			} catch (RuntimeException e) {
+				// Same error handling as in Analyzer#analyzeClass(byte[], String)
+				throw new IOException(String.format("Error while analyzing %s.", location), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.teamscale.report.jacoco;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.xml.XMLFormatter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Analyzed coverage that is rendered as JaCoCo XML only when it is written, so the XML never has to be held in memory
+ * as a whole. Can be written any number of times.
+ */
+public class JaCoCoXmlReport {
+
+	/** The analyzed coverage. */
+	private final IBundleCoverage bundleCoverage;
+
+	/** The session of the coverage. */
+	private final SessionInfo sessionInfo;
+
+	/** The execution data of the coverage. */
+	private final Collection<ExecutionData> executionData;
+
+	/** Constructor. */
+	/* package */ JaCoCoXmlReport(IBundleCoverage bundleCoverage, SessionInfo sessionInfo,
+								  Collection<ExecutionData> executionData) {
+		this.bundleCoverage = bundleCoverage;
+		this.sessionInfo = sessionInfo;
+		this.executionData = executionData;
+	}
+
+	/** Writes the XML report to the given stream as UTF-8. Does not close the stream. */
+	public void writeTo(OutputStream output) throws IOException {
+		IReportVisitor visitor = new XMLFormatter().createVisitor(new NonClosingOutputStream(output));
+		visitor.visitInfo(Collections.singletonList(sessionInfo), executionData);
+		visitor.visitBundle(bundleCoverage, null);
+		visitor.visitEnd();
+	}
+
+	/**
+	 * Flushes instead of closing the underlying stream, since the {@link XMLFormatter} closes its stream at the end of
+	 * the report, e.g. while the stream is a zip entry that is followed by further entries.
+	 */
+	private static class NonClosingOutputStream extends FilterOutputStream {
+
+		/** Constructor. */
+		private NonClosingOutputStream(OutputStream output) {
+			super(output);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			out.write(bytes, offset, length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
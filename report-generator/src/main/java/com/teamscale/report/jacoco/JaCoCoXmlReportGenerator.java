@@ -4,19 +4,14 @@ import com.teamscale.report.EDuplicateClassFileBehavior;
 import com.teamscale.report.jacoco.dump.Dump;
 import com.teamscale.report.util.ILogger;
 import org.conqat.lib.commons.filesystem.FileSystemUtils;
-import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.data.ExecutionDataStore;
-import org.jacoco.core.data.SessionInfo;
-import org.jacoco.report.IReportVisitor;
-import org.jacoco.report.xml.XMLFormatter;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Collections;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -37,6 +32,9 @@ public class JaCoCoXmlReportGenerator {
 	/** Whether to ignore non-identical duplicates of class files. */
 	private final EDuplicateClassFileBehavior duplicateClassFileBehavior;
 
+	/** Reuses the analysis of unchanged, uncovered classes across conversions, e.g. for interval dumps. */
+	private final ClassStructureCache classStructureCache;
+
 	/** Constructor. */
 	public JaCoCoXmlReportGenerator(List<File> codeDirectoriesOrArchives, Predicate<String> locationIncludeFilter,
 									EDuplicateClassFileBehavior duplicateClassFileBehavior, ILogger logger) {
@@ -44,6 +42,7 @@ public class JaCoCoXmlReportGenerator {
 		this.duplicateClassFileBehavior = duplicateClassFileBehavior;
 		this.locationIncludeFilter = locationIncludeFilter;
 		this.logger = logger;
+		this.classStructureCache = new ClassStructureCache(locationIncludeFilter, logger);
 	}
 
 	/** Creates the report. */
@@ -53,27 +52,24 @@ public class JaCoCoXmlReportGenerator {
 		return output.toString(FileSystemUtils.UTF8_ENCODING);
 	}
 
-	/** Creates the report. */
+	/** Creates the report and writes it to the given stream. Does not close the stream. */
 	public void convertToReport(OutputStream output, Dump dump) throws IOException {
-		ExecutionDataStore mergedStore = dump.store;
-		IBundleCoverage bundleCoverage = analyzeStructureAndAnnotateCoverage(mergedStore);
-		createReport(output, bundleCoverage, dump.info, mergedStore);
+		createReport(dump).writeTo(output);
 	}
 
-	/** Creates an XML report based on the given session and coverage data. */
-	private static void createReport(OutputStream output, IBundleCoverage bundleCoverage, SessionInfo sessionInfo,
-									 ExecutionDataStore store) throws IOException {
-		XMLFormatter xmlFormatter = new XMLFormatter();
-		IReportVisitor visitor = xmlFormatter.createVisitor(output);
-
-		visitor.visitInfo(Collections.singletonList(sessionInfo), store.getContents());
-		visitor.visitBundle(bundleCoverage, null);
-		visitor.visitEnd();
+	/**
+	 * Analyzes the given dump. The returned report renders the XML only when it is written, so large reports can be
+	 * streamed to their destination.
+	 */
+	public JaCoCoXmlReport createReport(Dump dump) throws IOException {
+		IBundleCoverage bundleCoverage = analyzeStructureAndAnnotateCoverage(dump.store);
+		return new JaCoCoXmlReport(bundleCoverage, dump.info, dump.store.getContents());
 	}
 
 	/**
 	 * Analyzes the structure of the class files in {@link #codeDirectoriesOrArchives} and builds an in-memory coverage
-	 * report with the coverage in the given store.
+	 * report with the coverage in the given store. Classes without coverage that have already been analyzed in a
+	 * previous conversion are not analyzed again.
 	 */
 	private IBundleCoverage analyzeStructureAndAnnotateCoverage(ExecutionDataStore store) throws IOException {
 		CoverageBuilder coverageBuilder = new CoverageBuilder();
@@ -82,11 +78,7 @@ public class JaCoCoXmlReportGenerator {
 					duplicateClassFileBehavior == EDuplicateClassFileBehavior.WARN);
 		}
 
-		Analyzer analyzer = new FilteringAnalyzer(store, coverageBuilder, locationIncludeFilter, logger);
-
-		for (File file : codeDirectoriesOrArchives) {
-			analyzer.analyzeAll(file);
-		}
+		classStructureCache.analyzeAll(codeDirectoriesOrArchives, store, coverageBuilder);
 
 		return coverageBuilder.getBundle("dummybundle");
 	}
@@ -0,0 +1,85 @@
+package com.teamscale.report.jacoco.dump;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+
+/**
+ * Accumulates the execution data of consecutive dumps.
+ * <p>
+ * On the dumping side, this is used to create delta dumps, which only contain the probes that have not been contained
+ * in any previous dump. Classes whose probes did not change are omitted entirely. On the receiving side, merging all
+ * delta dumps restores the complete coverage.
+ */
+public class ExecutionDataAccumulator {
+
+	/** The union of all execution data seen so far. */
+	private final ExecutionDataStore accumulated = new ExecutionDataStore();
+
+	/**
+	 * Returns the execution data of the given store that has not been seen before, i.e. one entry with the new probes
+	 * for each class that has at least one new probe. Adds the given execution data to the accumulated data.
+	 */
+	public synchronized ExecutionDataStore extractDelta(ExecutionDataStore store) {
+		ExecutionDataStore delta = new ExecutionDataStore();
+		for (ExecutionData data : store.getContents()) {
+			ExecutionData previous = accumulated.get(data.getId());
+			if (previous == null) {
+				if (data.hasHits()) {
+					delta.put(copy(data, data.getProbes()));
+					accumulated.put(copy(data, data.getProbes()));
+				}
+				continue;
+			}
+
+			boolean[] newProbes = getNewProbes(previous.getProbes(), data.getProbes());
+			if (newProbes != null) {
+				delta.put(copy(data, newProbes));
+				previous.merge(data);
+			}
+		}
+		return delta;
+	}
+
+	/**
+	 * Returns the probes that are set in the current but not in the previous probes or <code>null</code> if there are
+	 * no such probes.
+	 */
+	private static boolean[] getNewProbes(boolean[] previous, boolean[] current) {
+		boolean[] newProbes = null;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] && !previous[i]) {
+				if (newProbes == null) {
+					newProbes = new boolean[current.length];
+				}
+				newProbes[i] = true;
+			}
+		}
+		return newProbes;
+	}
+
+	/** Copies the given execution data with the given probes, so later changes to either do not affect the other. */
+	private static ExecutionData copy(ExecutionData data, boolean[] probes) {
+		return new ExecutionData(data.getId(), data.getName(), probes.clone());
+	}
+
+	/** Merges the given (delta) execution data into the accumulated data. */
+	public synchronized void add(ExecutionDataStore store) {
+		for (ExecutionData data : store.getContents()) {
+			ExecutionData previous = accumulated.get(data.getId());
+			if (previous == null) {
+				accumulated.put(copy(data, data.getProbes()));
+			} else {
+				previous.merge(data);
+			}
+		}
+	}
+
+	/** Returns a copy of the union of all execution data seen so far. */
+	public synchronized ExecutionDataStore getAccumulated() {
+		ExecutionDataStore copy = new ExecutionDataStore();
+		for (ExecutionData data : accumulated.getContents()) {
+			copy.put(copy(data, data.getProbes()));
+		}
+		return copy;
+	}
+}
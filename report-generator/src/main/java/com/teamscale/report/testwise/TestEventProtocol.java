@@ -0,0 +1,71 @@
+package com.teamscale.report.testwise;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * The compact binary protocol with which a test runner signals test starts and ends to the testwise coverage agent
+ * over a persistent socket connection. This avoids the overhead of one HTTP request per test event.
+ * <p>
+ * Each event is sent as one command byte followed by the modified UTF-8 encoded uniform path of the test (see {@link
+ * DataOutputStream#writeUTF(String)}). The agent answers every event with {@link #REPLY_OK} once it has been processed
+ * or with {@link #REPLY_ERROR} followed by an UTF-8 encoded error message.
+ * <p>
+ * Test runners in the same JVM as the agent skip the socket and call the agent via JMX under {@link
+ * #AGENT_OBJECT_NAME} instead.
+ */
+public final class TestEventProtocol {
+
+	/**
+	 * The JMX name under which the agent registers itself, followed by the port of its HTTP server, so test runners can
+	 * find the agent that belongs to a certain URL.
+	 */
+	public static final String AGENT_OBJECT_NAME = "com.teamscale.jacoco.agent:type=TestwiseCoverageAgent,port=";
+
+	/** Command that signals the start of a test. */
+	public static final byte COMMAND_TEST_START = 1;
+
+	/** Command that signals the end of a test. */
+	public static final byte COMMAND_TEST_END = 2;
+
+	/** Reply to a successfully processed event. */
+	public static final byte REPLY_OK = 0;
+
+	/** Reply to an event that could not be processed. Followed by an error message. */
+	public static final byte REPLY_ERROR = 1;
+
+	private TestEventProtocol() {
+		// static utility
+	}
+
+	/** Writes the reply to an event. The message is only written for errors. Does not flush the stream. */
+	public static void writeReply(DataOutputStream output, String errorMessage) throws IOException {
+		if (errorMessage == null) {
+			output.writeByte(REPLY_OK);
+			return;
+		}
+		output.writeByte(REPLY_ERROR);
+		output.writeUTF(errorMessage);
+	}
+
+	/**
+	 * Reads the reply to an event.
+	 *
+	 * @throws IOException if the reply is an error or the connection was closed.
+	 */
+	public static void readReply(DataInputStream input) throws IOException {
+		int reply = input.read();
+		switch (reply) {
+			case REPLY_OK:
+				return;
+			case REPLY_ERROR:
+				throw new IOException("The agent failed to process the test event: " + input.readUTF());
+			case -1:
+				throw new EOFException("The agent closed the connection.");
+			default:
+				throw new IOException("Received unknown reply " + reply + " from the agent.");
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.teamscale.report.testwise;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.teamscale.report.testwise.model.TestInfo;
+import com.teamscale.report.testwise.model.TestwiseCoverageReport;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a {@link TestwiseCoverageReport} as JSON test by test, so the report never has to be held in memory as a
+ * whole. The written JSON is identical to serializing a {@link TestwiseCoverageReport} with the same tests.
+ * <p>
+ * The report is only complete once {@link #finish()} has been called. Closing the writer without finishing it, e.g.
+ * because the conversion failed, deletes the report file, so a truncated report cannot be mistaken for a complete one.
+ */
+public class TestwiseCoverageReportWriter implements Closeable {
+
+	/** Serializes the single tests. Pretty printing is controlled by the {@link #writer}. */
+	private static final Gson GSON = new Gson();
+
+	/** The report file. */
+	private final File reportFile;
+
+	/** The writer for the report file, which is closed directly if the report is not finished. */
+	private final Writer fileWriter;
+
+	/** The underlying JSON writer. */
+	private final JsonWriter writer;
+
+	/** Whether the report has been finished successfully. */
+	private boolean finished = false;
+
+	/**
+	 * Creates a writer for the given file, creating its parent directories if necessary.
+	 *
+	 * @param prettyPrint Whether to indent the JSON. Disabling this reduces the report size considerably.
+	 * @param gzip        Whether to compress the report with gzip.
+	 */
+	public TestwiseCoverageReportWriter(File reportFile, boolean prettyPrint, boolean gzip) throws IOException {
+		this.reportFile = reportFile;
+		File directory = reportFile.getAbsoluteFile().getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Failed to create directory " + directory.getAbsolutePath());
+		}
+		OutputStream output = new BufferedOutputStream(new FileOutputStream(reportFile));
+		if (gzip) {
+			output = new GZIPOutputStream(output);
+		}
+		fileWriter = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+		writer = new JsonWriter(fileWriter);
+		if (prettyPrint) {
+			writer.setIndent("  ");
+		}
+		writer.beginObject();
+		writer.name("tests");
+		writer.beginArray();
+	}
+
+	/** Appends the given test to the report. */
+	public void writeTestInfo(TestInfo testInfo) throws IOException {
+		GSON.toJson(testInfo, TestInfo.class, writer);
+	}
+
+	/** Completes the report after all tests have been written. */
+	public void finish() throws IOException {
+		writer.endArray();
+		writer.endObject();
+		finished = true;
+	}
+
+	/** Closes the file. Deletes it if the report has not been {@link #finish() finished}. */
+	@Override
+	public void close() throws IOException {
+		if (finished) {
+			writer.close();
+			return;
+		}
+		try {
+			fileWriter.close();
+		} finally {
+			if (reportFile.exists() && !reportFile.delete()) {
+				throw new IOException("Failed to delete the incomplete report " + reportFile.getAbsolutePath());
+			}
+		}
+	}
+}
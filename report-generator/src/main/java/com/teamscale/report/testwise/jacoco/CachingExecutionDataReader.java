@@ -2,8 +2,10 @@ package com.teamscale.report.testwise.jacoco;
 
 import com.teamscale.report.testwise.jacoco.cache.AnalyzerCache;
 import com.teamscale.report.testwise.jacoco.cache.CoverageGenerationException;
+import com.teamscale.report.testwise.jacoco.cache.ParallelAnalyzerCache;
 import com.teamscale.report.EDuplicateClassFileBehavior;
 import com.teamscale.report.testwise.jacoco.cache.ProbesCache;
+import com.teamscale.report.testwise.jacoco.cache.ProbesCacheFile;
 import com.teamscale.report.jacoco.dump.Dump;
 import com.teamscale.report.testwise.model.builder.TestCoverageBuilder;
 import com.teamscale.report.testwise.model.TestwiseCoverage;
@@ -15,6 +17,9 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -36,12 +41,40 @@ class CachingExecutionDataReader {
 
 	/**
 	 * Analyzes the given class/jar/war/... files and creates a lookup of which probes belong to which method.
+	 *
+	 * @param pool            The pool in which the class files are analyzed or null to analyze them sequentially in
+	 *                        the current thread.
+	 * @param probesCacheFile File in which the analysis results are persisted across conversions or null to always
+	 *                        analyze all class files.
 	 */
-	public void analyzeClassDirs(Collection<File> classesDirectories, Predicate<String> locationIncludeFilter, EDuplicateClassFileBehavior duplicateClassFileBehavior) throws CoverageGenerationException {
+	public void analyzeClassDirs(Collection<File> classesDirectories, Predicate<String> locationIncludeFilter,
+								 EDuplicateClassFileBehavior duplicateClassFileBehavior, ForkJoinPool pool,
+								 File probesCacheFile) throws CoverageGenerationException {
 		if (probesCache != null) {
 			return;
 		}
-		probesCache = new ProbesCache(logger, duplicateClassFileBehavior);
+		ProbesCacheFile cacheFile = null;
+		if (probesCacheFile != null) {
+			cacheFile = new ProbesCacheFile(probesCacheFile, logger);
+		}
+		probesCache = new ProbesCache(logger, duplicateClassFileBehavior, cacheFile);
+		if (pool != null) {
+			new ParallelAnalyzerCache(probesCache, locationIncludeFilter, logger, pool)
+					.analyzeAll(classesDirectories);
+		} else {
+			analyzeClassDirsSequentially(classesDirectories, locationIncludeFilter);
+		}
+		probesCache.saveCacheFile();
+		probesCache.handleDuplicateClasses();
+		if (probesCache.isEmpty()) {
+			String directoryList = classesDirectories.stream().map(File::getPath).collect(Collectors.joining(","));
+			throw new CoverageGenerationException("No class files found in the given directories! " + directoryList);
+		}
+	}
+
+	/** Analyzes the given class/jar/war/... files one after another. */
+	private void analyzeClassDirsSequentially(Collection<File> classesDirectories,
+											  Predicate<String> locationIncludeFilter) {
 		AnalyzerCache analyzer = new AnalyzerCache(probesCache, locationIncludeFilter, logger);
 		for (File classDir : classesDirectories) {
 			if (classDir.exists()) {
@@ -54,10 +87,6 @@ class CachingExecutionDataReader {
 				}
 			}
 		}
-		if (probesCache.isEmpty()) {
-			String directoryList = classesDirectories.stream().map(File::getPath).collect(Collectors.joining(","));
-			throw new CoverageGenerationException("No class files found in the given directories! " + directoryList);
-		}
 	}
 
 	/**
@@ -66,23 +95,78 @@ class CachingExecutionDataReader {
 	public TestwiseCoverage buildCoverage(List<Dump> dumps, Predicate<String> locationIncludeFilter) {
 		TestwiseCoverage testwiseCoverage = new TestwiseCoverage();
 		for (Dump dump : dumps) {
-			String testId = dump.info.getId();
-			if (testId.isEmpty()) {
-				// Ignore intermediate coverage that does not belong to any specific test
-				logger.debug("Found a session with empty name! This could indicate that coverage is dumped also for " +
-						"coverage in between tests or that the given test name was empty");
-				continue;
-			}
-			try {
-				TestCoverageBuilder testCoverage = buildCoverage(testId, dump.store, locationIncludeFilter);
-				testwiseCoverage.add(testCoverage);
-			} catch (CoverageGenerationException e) {
-				logger.error("Failed to generate coverage for test " + testId + "! Skipping to the next test.", e);
-			}
+			testwiseCoverage.add(buildCoverage(dump, locationIncludeFilter));
 		}
 		return testwiseCoverage;
 	}
 
+	/**
+	 * Same as {@link #buildCoverage(List, Predicate)}, but converts the dumps concurrently in the given pool. Each task
+	 * collects its coverage in its own {@link TestwiseCoverage} and the results are merged when the tasks are joined,
+	 * so no {@link TestwiseCoverage} is accessed concurrently.
+	 * <p>
+	 * If called from a worker of the pool, the task is run in that worker instead of being submitted to the pool
+	 * again, so the worker does not block on a nested {@link ForkJoinPool#invoke(ForkJoinTask)}.
+	 */
+	public TestwiseCoverage buildCoverage(List<Dump> dumps, Predicate<String> locationIncludeFilter,
+										  ForkJoinPool pool) {
+		BuildCoverageTask task = new BuildCoverageTask(dumps, locationIncludeFilter);
+		if (ForkJoinTask.getPool() == pool) {
+			return task.invoke();
+		}
+		return pool.invoke(task);
+	}
+
+	/** Converts a range of dumps by recursively splitting it until single dumps remain. */
+	private class BuildCoverageTask extends RecursiveTask<TestwiseCoverage> {
+
+		/** The dumps to convert. */
+		private final List<Dump> dumps;
+
+		/** The filter for the analyzed class files. */
+		private final Predicate<String> locationIncludeFilter;
+
+		private BuildCoverageTask(List<Dump> dumps, Predicate<String> locationIncludeFilter) {
+			this.dumps = dumps;
+			this.locationIncludeFilter = locationIncludeFilter;
+		}
+
+		@Override
+		protected TestwiseCoverage compute() {
+			if (dumps.size() <= 1) {
+				return buildCoverage(dumps, locationIncludeFilter);
+			}
+			int middle = dumps.size() / 2;
+			BuildCoverageTask secondHalf = new BuildCoverageTask(dumps.subList(middle, dumps.size()),
+					locationIncludeFilter);
+			secondHalf.fork();
+			TestwiseCoverage testwiseCoverage = new BuildCoverageTask(dumps.subList(0, middle), locationIncludeFilter)
+					.compute();
+			testwiseCoverage.add(secondHalf.join());
+			return testwiseCoverage;
+		}
+	}
+
+	/**
+	 * Converts the given dump of a single test to coverage data. Returns null if the dump does not belong to a test
+	 * or its coverage cannot be generated.
+	 */
+	public TestCoverageBuilder buildCoverage(Dump dump, Predicate<String> locationIncludeFilter) {
+		String testId = dump.info.getId();
+		if (testId.isEmpty()) {
+			// Ignore intermediate coverage that does not belong to any specific test
+			logger.debug("Found a session with empty name! This could indicate that coverage is dumped also for " +
+					"coverage in between tests or that the given test name was empty");
+			return null;
+		}
+		try {
+			return buildCoverage(testId, dump.store, locationIncludeFilter);
+		} catch (CoverageGenerationException e) {
+			logger.error("Failed to generate coverage for test " + testId + "! Skipping to the next test.", e);
+			return null;
+		}
+	}
+
 	/**
 	 * Converts the given store to coverage data. The coverage will only contain line range coverage information.
 	 */
@@ -12,20 +12,35 @@ import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.ISessionInfoVisitor;
 import org.jacoco.core.data.SessionInfo;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 
 /**
  * Creates a XML report for an execution data store. The report is grouped by session.
  * <p>
  * The class files under test must be compiled with debug information otherwise no coverage will be collected.
+ * <p>
+ * Must be closed to release the threads used for a parallelism greater than 1.
  */
-public class JaCoCoTestwiseReportGenerator {
+public class JaCoCoTestwiseReportGenerator implements AutoCloseable {
+
+	/**
+	 * The number of sessions per thread that are read before they are converted concurrently. Bounds the memory needed
+	 * for execution data that has not been converted yet.
+	 */
+	private static final int SESSIONS_PER_THREAD = 4;
 
 	/** The execution data reader and converter. */
 	private CachingExecutionDataReader executionDataReader;
@@ -33,6 +48,12 @@ public class JaCoCoTestwiseReportGenerator {
 	/** The filter for the analyzed class files. */
 	private final Predicate<String> locationIncludeFilter;
 
+	/**
+	 * The pool in which class files are analyzed and sessions are converted concurrently or null to do both one after
+	 * another.
+	 */
+	private final ForkJoinPool pool;
+
 	/**
 	 * Create a new generator with a collection of class directories.
 	 *
@@ -41,54 +62,187 @@ public class JaCoCoTestwiseReportGenerator {
 	 * @param logger                    The logger
 	 */
 	public JaCoCoTestwiseReportGenerator(Collection<File> codeDirectoriesOrArchives, Predicate<String> locationIncludeFilter, EDuplicateClassFileBehavior duplicateClassFileBehavior, ILogger logger) throws CoverageGenerationException {
+		this(codeDirectoriesOrArchives, locationIncludeFilter, duplicateClassFileBehavior, 1, null, logger);
+	}
+
+	/**
+	 * Create a new generator with a collection of class directories.
+	 *
+	 * @param codeDirectoriesOrArchives Root directory that contains the projects class files.
+	 * @param locationIncludeFilter     Filter for class files
+	 * @param parallelism               The number of threads to use for the conversion
+	 * @param probesCacheFile           File in which the analyzed class files are cached across conversions. May be
+	 *                                  null.
+	 * @param logger                    The logger
+	 */
+	public JaCoCoTestwiseReportGenerator(Collection<File> codeDirectoriesOrArchives, Predicate<String> locationIncludeFilter, EDuplicateClassFileBehavior duplicateClassFileBehavior, int parallelism, File probesCacheFile, ILogger logger) throws CoverageGenerationException {
 		this.locationIncludeFilter = locationIncludeFilter;
+		if (parallelism > 1) {
+			this.pool = new ForkJoinPool(parallelism);
+		} else {
+			this.pool = null;
+		}
 		this.executionDataReader = new CachingExecutionDataReader(logger);
-		this.executionDataReader.analyzeClassDirs(codeDirectoriesOrArchives, locationIncludeFilter, duplicateClassFileBehavior);
+		try {
+			this.executionDataReader.analyzeClassDirs(codeDirectoriesOrArchives, locationIncludeFilter, duplicateClassFileBehavior, pool, probesCacheFile);
+		} catch (CoverageGenerationException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/** Stops the threads used for the analysis and conversion. */
+	@Override
+	public void close() {
+		if (pool != null) {
+			pool.shutdown();
+		}
 	}
 
-	/** Converts the given dumps to a report. */
+	/**
+	 * Converts the given dumps to a report. If a parallelism greater than 1 was given, multiple files are read
+	 * concurrently, each by its own reader thread outside of the {@link #pool}, and their sessions are converted in the
+	 * pool. The number of sessions read per file before converting them is reduced accordingly, so the execution data
+	 * that has not been converted yet stays bounded by {@link #SESSIONS_PER_THREAD} sessions per thread of the pool,
+	 * independent of the number of files.
+	 */
 	public TestwiseCoverage convert(Collection<File> executionDataFiles) throws IOException {
-		TestwiseCoverage aggregatedTestwiseCoverage = new TestwiseCoverage();
-		for (File executionDataFile : executionDataFiles) {
-			aggregatedTestwiseCoverage.add(executionDataReader.buildCoverage(readDumps(executionDataFile), locationIncludeFilter));
+		if (pool == null || executionDataFiles.size() <= 1) {
+			TestwiseCoverage aggregatedTestwiseCoverage = new TestwiseCoverage();
+			for (File executionDataFile : executionDataFiles) {
+				aggregatedTestwiseCoverage.add(convert(executionDataFile));
+			}
+			return aggregatedTestwiseCoverage;
+		}
+
+		int concurrentFiles = Math.min(executionDataFiles.size(), pool.getParallelism());
+		int sessionBatchSize = Math.max(1, pool.getParallelism() * SESSIONS_PER_THREAD / concurrentFiles);
+		ExecutorService readers = Executors.newFixedThreadPool(concurrentFiles, runnable -> {
+			Thread thread = new Thread(runnable, "Execution data reader");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<TestwiseCoverage>> results = new ArrayList<>(executionDataFiles.size());
+			for (File executionDataFile : executionDataFiles) {
+				results.add(readers.submit(() -> convert(executionDataFile, sessionBatchSize)));
+			}
+			TestwiseCoverage aggregatedTestwiseCoverage = new TestwiseCoverage();
+			for (Future<TestwiseCoverage> result : results) {
+				aggregatedTestwiseCoverage.add(getResult(result));
+			}
+			return aggregatedTestwiseCoverage;
+		} finally {
+			readers.shutdownNow();
 		}
-		return aggregatedTestwiseCoverage;
 	}
 
-	/** Converts the given dumps to a report. */
+	/** Waits for the conversion of a file and rethrows its exception. */
+	private static TestwiseCoverage getResult(Future<TestwiseCoverage> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while converting the execution data files");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException("Failed to convert an execution data file", cause);
+		}
+	}
+
+	/**
+	 * Converts the given dumps to a report. The file is streamed, i.e. each session is converted as soon as it has
+	 * been read completely, so only the execution data of a single session is kept in memory at once. If a parallelism
+	 * greater than 1 was given, batches of sessions are read and converted concurrently instead.
+	 */
 	public TestwiseCoverage convert(File executionDataFile) throws IOException {
-		return executionDataReader.buildCoverage(readDumps(executionDataFile), locationIncludeFilter);
+		if (pool == null) {
+			return convert(executionDataFile, 1);
+		}
+		return convert(executionDataFile, pool.getParallelism() * SESSIONS_PER_THREAD);
 	}
 
-	/** Reads the dumps from the given *.exec file. */
-	private List<Dump> readDumps(File executionDataFile) throws IOException {
-		FileInputStream input = new FileInputStream(executionDataFile);
-		ExecutionDataReader executionDataReader = new ExecutionDataReader(input);
-		DumpCollector dumpCollector = new DumpCollector();
-		executionDataReader.setExecutionDataVisitor(dumpCollector);
-		executionDataReader.setSessionInfoVisitor(dumpCollector);
-		executionDataReader.read();
-		return dumpCollector.dumps;
+	/** Converts the given file, converting the given number of sessions at once. */
+	private TestwiseCoverage convert(File executionDataFile, int sessionBatchSize) throws IOException {
+		SessionConverter sessionConverter = new SessionConverter(sessionBatchSize);
+		try (FileInputStream input = new FileInputStream(executionDataFile)) {
+			ExecutionDataReader executionDataReader = new ExecutionDataReader(new BufferedInputStream(input));
+			executionDataReader.setExecutionDataVisitor(sessionConverter);
+			executionDataReader.setSessionInfoVisitor(sessionConverter);
+			executionDataReader.read();
+		}
+		sessionConverter.finishSession();
+		sessionConverter.convertPendingDumps();
+		return sessionConverter.testwiseCoverage;
 	}
 
-	/** Collects dumps per session. */
-	private static class DumpCollector implements IExecutionDataVisitor, ISessionInfoVisitor {
+	/** Converts the sessions of an execution data file to testwise coverage while they are read. */
+	private class SessionConverter implements IExecutionDataVisitor, ISessionInfoVisitor {
+
+		/** The coverage of all sessions converted so far. */
+		private final TestwiseCoverage testwiseCoverage = new TestwiseCoverage();
+
+		/** Sessions that have been read completely, but not converted yet. */
+		private final List<Dump> pendingDumps = new ArrayList<>();
+
+		/** The session that is currently read or null before the first session. */
+		private Dump currentDump;
 
-		/** List of dumps. */
-		public final List<Dump> dumps = new ArrayList<>();
+		/** The number of sessions that are converted at once. */
+		private final int sessionBatchSize;
 
-		/** The store to which coverage is currently written to. */
-		private ExecutionDataStore store;
+		private SessionConverter(int sessionBatchSize) {
+			this.sessionBatchSize = sessionBatchSize;
+		}
 
 		@Override
 		public void visitSessionInfo(SessionInfo info) {
-			store = new ExecutionDataStore();
-			dumps.add(new Dump(info, store));
+			finishSession();
+			currentDump = new Dump(info, new ExecutionDataStore());
 		}
 
 		@Override
 		public void visitClassExecution(ExecutionData data) {
-			store.put(data);
+			if (currentDump == null) {
+				// Execution data without session info does not belong to any test
+				return;
+			}
+			currentDump.store.put(data);
+		}
+
+		/**
+		 * Schedules the current session for conversion. The sessions are converted once a batch is complete, which
+		 * consists of a single session unless sessions are converted concurrently.
+		 */
+		private void finishSession() {
+			if (currentDump == null) {
+				return;
+			}
+			pendingDumps.add(currentDump);
+			currentDump = null;
+			if (pendingDumps.size() >= sessionBatchSize) {
+				convertPendingDumps();
+			}
+		}
+
+		/** Converts all pending sessions and releases their execution data. */
+		private void convertPendingDumps() {
+			if (pool == null) {
+				testwiseCoverage.add(executionDataReader.buildCoverage(pendingDumps, locationIncludeFilter));
+			} else {
+				testwiseCoverage.add(executionDataReader.buildCoverage(pendingDumps, locationIncludeFilter,
+						pool));
+			}
+			pendingDumps.clear();
 		}
 	}
-}
\ No newline at end of file
+}
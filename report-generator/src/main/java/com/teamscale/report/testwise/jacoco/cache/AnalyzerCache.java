@@ -20,7 +20,8 @@ import java.util.function.Predicate;
  * <p>
  * For every class that gets found {@link #analyzeClass(byte[])} is called. A class is identified by its class ID which
  * is a CRC64 checksum of the classfile. We process each class with {@link CachingClassAnalyzer} to fill a
- * {@link ClassCoverageLookup}.
+ * {@link ClassCoverageLookup}, unless the {@link ProbesCache} can load the lookup for the class ID from its
+ * {@link ProbesCacheFile}.
  * <p>
  * The class basically needs to override {@link org.jacoco.core.analysis.Analyzer#analyzeClass(byte[])}.
  * Since the method is private we need to override and copy the implementations of all methods that call this method,
@@ -50,11 +51,11 @@ public class AnalyzerCache extends FilteringAnalyzer {
 	 */
 	private void analyzeClass(final byte[] source) {
 		long classId = CRC64.classId(source);
-		if (probesCache.containsClassId(classId)) {
+		if (probesCache.containsClassId(classId) || probesCache.addClassFromCacheFile(classId)) {
 			return;
 		}
 		final ClassReader reader = InstrSupport.classReaderFor(source);
-		ClassCoverageLookup classCoverageLookup = probesCache.createClass(classId, reader.getClassName());
+		ClassCoverageLookup classCoverageLookup = probesCache.createClass(reader.getClassName());
 
 		// Dummy class coverage object that allows us to subclass ClassAnalyzer with CachingClassAnalyzer and reuse its
 		// IFilterContext implementation
@@ -65,6 +66,7 @@ public class AnalyzerCache extends FilteringAnalyzer {
 				stringPool);
 		final ClassVisitor visitor = new ClassProbesAdapter(classAnalyzer, false);
 		reader.accept(visitor, 0);
+		probesCache.finishClass(classId, classCoverageLookup);
 	}
 
 	/**
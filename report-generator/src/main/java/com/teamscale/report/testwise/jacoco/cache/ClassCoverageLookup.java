@@ -4,8 +4,10 @@ import com.teamscale.report.testwise.model.builder.FileCoverageBuilder;
 import com.teamscale.report.util.ILogger;
 import org.conqat.lib.commons.string.StringUtils;
 import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.analysis.ISourceNode;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
@@ -15,6 +17,7 @@ import java.util.Set;
  * - Create an instance of this class for every analyzed java class.
  * - Set the file name of the java source file from which the class has been created.
  * - Then call {@link #addProbe(int, Set)} for all probes and lines that belong to that probe.
+ * - Finally call {@link #setTotalProbeCount(int)}, which compacts the probe lookup into flat int arrays.
  * - Afterwards call {@link #getFileCoverage(ExecutionData, ILogger)} to transform probes ({@link ExecutionData}) for
  * this class into covered lines ({@link FileCoverageBuilder}).
  */
@@ -27,9 +30,31 @@ public class ClassCoverageLookup {
 	private String sourceFileName;
 
 	/**
-	 * Mapping from probe IDs to sets of covered lines. The index in this list corresponds to the probe ID.
+	 * Mapping from probe IDs to the line ranges covered by the probe, which is only used while the class is being
+	 * analyzed. The index in this list corresponds to the probe ID. Each entry holds pairs of start and end lines (both
+	 * inclusive). Gets compacted into {@link #probeRangeOffsets} and {@link #probeLineRanges} in
+	 * {@link #setTotalProbeCount(int)}.
 	 */
-	private final List<Set<Integer>> probes = new ArrayList<>();
+	private List<int[]> probes = new ArrayList<>();
+
+	/**
+	 * Offsets into {@link #probeLineRanges} for each probe. The line ranges of probe i are stored at the indices
+	 * probeRangeOffsets[i] (inclusive) to probeRangeOffsets[i + 1] (exclusive). Has one element more than there are
+	 * probes.
+	 */
+	private int[] probeRangeOffsets;
+
+	/**
+	 * Flattened start and end lines (both inclusive) of the line ranges of all probes. A start line is always at an
+	 * even index followed by the corresponding end line.
+	 */
+	private int[] probeLineRanges;
+
+	/**
+	 * Probes that could not be matched to any method, e.g. probes in methods generated by Lombok. In contrast to these,
+	 * probes with an empty line range belong to methods without line information.
+	 */
+	private boolean[] unmappedProbes;
 
 	/**
 	 * Constructor.
@@ -40,20 +65,104 @@ public class ClassCoverageLookup {
 		this.className = className;
 	}
 
+	/**
+	 * Creates an already compacted lookup, e.g. from a {@link ProbesCacheFile}. See the fields for the meaning of the
+	 * parameters.
+	 */
+	ClassCoverageLookup(String className, String sourceFileName, int[] probeRangeOffsets, int[] probeLineRanges,
+						boolean[] unmappedProbes) {
+		this.className = className;
+		this.sourceFileName = sourceFileName;
+		this.probeRangeOffsets = probeRangeOffsets;
+		this.probeLineRanges = probeLineRanges;
+		this.unmappedProbes = unmappedProbes;
+		this.probes = null;
+	}
+
+	/** @see #className */
+	/* package */ String getClassName() {
+		return className;
+	}
+
+	/** @see #sourceFileName */
+	/* package */ String getSourceFileName() {
+		return sourceFileName;
+	}
+
+	/** @see #probeRangeOffsets */
+	/* package */ int[] getProbeRangeOffsets() {
+		return probeRangeOffsets;
+	}
+
+	/** @see #probeLineRanges */
+	/* package */ int[] getProbeLineRanges() {
+		return probeLineRanges;
+	}
+
+	/** @see #unmappedProbes */
+	/* package */ boolean[] getUnmappedProbes() {
+		return unmappedProbes;
+	}
+
 	/** Sets the file name of the currently analyzed class (without path). */
 	public void setSourceFileName(String sourceFileName) {
 		this.sourceFileName = sourceFileName;
 	}
 
-	/** Adjusts the size of the probes list to the total probes count. */
+	/**
+	 * Adjusts the size of the probes list to the total probes count. This is called after all probes of the class have
+	 * been added and compacts them into flat arrays, so no further probes may be added afterwards.
+	 */
 	public void setTotalProbeCount(int count) {
 		ensureArraySize(count - 1);
+		probeRangeOffsets = new int[probes.size() + 1];
+		unmappedProbes = new boolean[probes.size()];
+		int rangeCount = 0;
+		for (int i = 0; i < probes.size(); i++) {
+			int[] ranges = probes.get(i);
+			probeRangeOffsets[i] = rangeCount;
+			if (ranges == null) {
+				unmappedProbes[i] = true;
+			} else {
+				rangeCount += ranges.length;
+			}
+		}
+		probeRangeOffsets[probes.size()] = rangeCount;
+
+		probeLineRanges = new int[rangeCount];
+		for (int i = 0; i < probes.size(); i++) {
+			int[] ranges = probes.get(i);
+			if (ranges != null) {
+				System.arraycopy(ranges, 0, probeLineRanges, probeRangeOffsets[i], ranges.length);
+			}
+		}
+		probes = null;
 	}
 
 	/** Adds the probe with the given id to the method. */
 	public void addProbe(int probeId, Set<Integer> lines) {
 		ensureArraySize(probeId);
-		probes.set(probeId, lines);
+		probes.set(probeId, compactifyToRanges(lines));
+	}
+
+	/**
+	 * Converts the given lines to sorted pairs of start and end lines (both inclusive) in which neighboring lines are
+	 * merged to a single range. Unknown lines are skipped.
+	 */
+	private static int[] compactifyToRanges(Set<Integer> lines) {
+		int[] sortedLines = lines.stream().mapToInt(Integer::intValue).filter(line -> line != ISourceNode.UNKNOWN_LINE)
+				.sorted().toArray();
+		int[] ranges = new int[sortedLines.length * 2];
+		int rangeCount = 0;
+		for (int line : sortedLines) {
+			if (rangeCount > 0 && ranges[rangeCount - 1] + 1 >= line) {
+				ranges[rangeCount - 1] = line;
+			} else {
+				ranges[rangeCount++] = line;
+				ranges[rangeCount++] = line;
+			}
+		}
+		return Arrays.copyOf(ranges, rangeCount);
 	}
 
 	/**
@@ -77,7 +186,7 @@ public class ClassCoverageLookup {
 
 		if (checkProbeInvariant(executedProbes)) {
 			throw new CoverageGenerationException("Probe lookup does not match with actual probe size for " +
-					sourceFileName + " " + className + " (" + probes.size() + " vs " + executedProbes.length + ")! " +
+					sourceFileName + " " + className + " (" + unmappedProbes.length + " vs " + executedProbes.length + ")! " +
 					"This is a bug in the profiler tooling. Please report it back to CQSE.");
 		}
 		if (sourceFileName == null) {
@@ -95,32 +204,35 @@ public class ClassCoverageLookup {
 	}
 
 	private void fillFileCoverage(FileCoverageBuilder fileCoverage, boolean[] executedProbes, ILogger logger) {
-		for (int i = 0; i < probes.size(); i++) {
-			Set<Integer> coveredLines = probes.get(i);
+		for (int i = 0; i < unmappedProbes.length; i++) {
 			if (!executedProbes[i]) {
 				continue;
 			}
-			// coveredLines is null if the probe is outside of a method
+			// The probe is unmapped if it is outside of a method
 			// Happens e.g. for methods generated by Lombok
-			if (coveredLines == null) {
+			if (unmappedProbes[i]) {
 				logger.info(sourceFileName + " " + className + " did contain a covered probe " + i + "(of " +
 						executedProbes.length + ") that could not be " +
 						"matched to any method. This could be a bug in the profiler tooling. Please report it back " +
 						"to CQSE.");
 				continue;
 			}
-			if (coveredLines.isEmpty()) {
+			int rangesStart = probeRangeOffsets[i];
+			int rangesEnd = probeRangeOffsets[i + 1];
+			if (rangesStart == rangesEnd) {
 				logger.debug(
 						sourceFileName + " " + className + " did contain a method with no line information. " +
 								"Does the class contain debug information?");
 				continue;
 			}
-			fileCoverage.addLines(coveredLines);
+			for (int j = rangesStart; j < rangesEnd; j += 2) {
+				fileCoverage.addLineRange(probeLineRanges[j], probeLineRanges[j + 1]);
+			}
 		}
 	}
 
 	/** Checks that the executed probes is not smaller than the cached probes. */
 	private boolean checkProbeInvariant(boolean[] executedProbes) {
-		return probes.size() > executedProbes.length;
+		return unmappedProbes.length > executedProbes.length;
 	}
 }
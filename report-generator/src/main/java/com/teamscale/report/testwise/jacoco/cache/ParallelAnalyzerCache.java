@@ -0,0 +1,197 @@
+package com.teamscale.report.testwise.jacoco.cache;
+
+import com.teamscale.report.util.ILogger;
+import org.jacoco.core.internal.ContentTypeDetector;
+import org.jacoco.core.internal.InputStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Analyzes class files, directories and archives in parallel and fills a {@link ProbesCache}.
+ * <p>
+ * Directories are traversed with one fork-join task per contained file. The entries of archives are read sequentially
+ * (since zip streams can only be read in order), but each entry is analyzed in its own task. To bound the memory used
+ * for large archives, at most {@link #MAX_BUFFERED_ENTRY_BYTES} of entries are read ahead of their analysis. The
+ * actual analysis of single entries (including nested archives) is delegated to one {@link AnalyzerCache} per worker
+ * thread, so locations are reported and filtered exactly as in the sequential analysis.
+ * <p>
+ * Identical class files found more than once are analyzed only once, unless they are analyzed concurrently, in which
+ * case the first successful analysis is kept. Non-identical duplicates are reported
+ * afterwards via {@link ProbesCache#handleDuplicateClasses()}, so the outcome does not depend on the order in which the
+ * class files are analyzed.
+ */
+public class ParallelAnalyzerCache {
+
+	/**
+	 * The number of bytes of entries that are read from an archive before waiting for their analysis to finish. Entries
+	 * larger than this are analyzed one at a time.
+	 */
+	private static final int MAX_BUFFERED_ENTRY_BYTES = 16 * 1024 * 1024;
+
+	/** The logger. */
+	private final ILogger logger;
+
+	/** The pool in which the analysis runs. */
+	private final ForkJoinPool pool;
+
+	/** One analyzer per worker thread, since analyzers are not thread-safe. */
+	private final ThreadLocal<AnalyzerCache> analyzers;
+
+	/** Constructor. */
+	public ParallelAnalyzerCache(ProbesCache probesCache, Predicate<String> locationIncludeFilter, ILogger logger,
+								 ForkJoinPool pool) {
+		this.logger = logger;
+		this.pool = pool;
+		this.analyzers = ThreadLocal.withInitial(() -> new AnalyzerCache(probesCache, locationIncludeFilter, logger));
+	}
+
+	/**
+	 * Analyzes the given class/jar/war/... files and directories. Files that cannot be analyzed are logged and
+	 * skipped.
+	 */
+	public void analyzeAll(Collection<File> classesDirectories) {
+		List<AnalysisTask> tasks = new ArrayList<>();
+		for (File classDir : classesDirectories) {
+			if (classDir.exists()) {
+				tasks.add(new FileAnalysisTask(classDir));
+			}
+		}
+
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	/** Base class for all analysis tasks. Logs I/O errors so that the remaining files are still analyzed. */
+	private abstract class AnalysisTask extends RecursiveAction {
+
+		/** The location of the analyzed file or archive entry as reported by JaCoCo. */
+		protected final String location;
+
+		private AnalysisTask(String location) {
+			this.location = location;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				analyze();
+			} catch (IOException e) {
+				logger.error("Failed to analyze class files in " + location + "! " +
+						"Maybe the folder contains incompatible class files. " +
+						"Coverage for class files in this folder will be ignored.", e);
+			}
+		}
+
+		/** Analyzes the {@link #location}. */
+		protected abstract void analyze() throws IOException;
+	}
+
+	/** Analyzes a single file or directory. */
+	private class FileAnalysisTask extends AnalysisTask {
+
+		/** The file or directory to analyze. */
+		private final File file;
+
+		private FileAnalysisTask(File file) {
+			super(file.getPath());
+			this.file = file;
+		}
+
+		@Override
+		protected void analyze() throws IOException {
+			if (file.isDirectory()) {
+				File[] children = file.listFiles();
+				if (children == null) {
+					throw new IOException("Failed to list the contents of " + location);
+				}
+				Arrays.sort(children);
+				List<FileAnalysisTask> subTasks = new ArrayList<>();
+				for (File child : children) {
+					subTasks.add(new FileAnalysisTask(child));
+				}
+				invokeAll(subTasks);
+				return;
+			}
+
+			try (InputStream input = new FileInputStream(file)) {
+				ContentTypeDetector detector = new ContentTypeDetector(input);
+				if (detector.getType() == ContentTypeDetector.ZIPFILE) {
+					analyzeZipEntries(detector.getInputStream());
+				} else {
+					analyzers.get().analyzeAll(detector.getInputStream(), location);
+				}
+			}
+		}
+
+		/**
+		 * Reads all entries of the given zip stream and analyzes each of them in its own task. Once the read entries
+		 * exceed {@link #MAX_BUFFERED_ENTRY_BYTES}, their analysis is awaited before reading further entries.
+		 */
+		private void analyzeZipEntries(InputStream input) throws IOException {
+			List<ForkJoinTask<Void>> batch = new ArrayList<>();
+			long bufferedBytes = 0;
+			ZipInputStream zip = new ZipInputStream(input);
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				if (entry.isDirectory()) {
+					continue;
+				}
+				byte[] content = InputStreams.readFully(zip);
+				batch.add(new ContentAnalysisTask(location + "@" + entry.getName(), content).fork());
+				bufferedBytes += content.length;
+				if (bufferedBytes >= MAX_BUFFERED_ENTRY_BYTES) {
+					joinAll(batch);
+					bufferedBytes = 0;
+				}
+			}
+			joinAll(batch);
+		}
+
+		/** Waits for the given tasks to finish and clears the list. */
+		private void joinAll(List<ForkJoinTask<Void>> tasks) {
+			for (ForkJoinTask<Void> task : tasks) {
+				task.join();
+			}
+			tasks.clear();
+		}
+	}
+
+	/** Analyzes the already read content of an archive entry, which may itself be a class file or an archive. */
+	private class ContentAnalysisTask extends AnalysisTask {
+
+		/** The content of the archive entry. Released after the analysis. */
+		private byte[] content;
+
+		private ContentAnalysisTask(String location, byte[] content) {
+			super(location);
+			this.content = content;
+		}
+
+		@Override
+		protected void analyze() throws IOException {
+			try {
+				analyzers.get().analyzeAll(new ByteArrayInputStream(content), location);
+			} finally {
+				content = null;
+			}
+		}
+	}
+}
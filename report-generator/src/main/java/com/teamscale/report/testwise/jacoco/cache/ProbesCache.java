@@ -6,13 +6,17 @@ import com.teamscale.report.util.ILogger;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.report.JavaNames;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Holds {@link ClassCoverageLookup}s for all analyzed classes.
+ * <p>
+ * Classes may be added concurrently, e.g. by a {@link ParallelAnalyzerCache}.
  */
 public class ProbesCache {
 
@@ -20,42 +24,129 @@ public class ProbesCache {
 	private final ILogger logger;
 
 	/** A mapping from class ID (CRC64 of the class file) to {@link ClassCoverageLookup}. */
-	private final HashMap<Long, ClassCoverageLookup> classCoverageLookups = new HashMap<>();
+	private final Map<Long, ClassCoverageLookup> classCoverageLookups = new ConcurrentHashMap<>();
 
-	/** Holds all fully-qualified class names that are already contained in the cache. */
-	private final Set<String> containedClasses = new HashSet<>();
+	/**
+	 * The number of non-identical class files per fully-qualified class name contained in the cache. Names with more
+	 * than one class file are reported by {@link #handleDuplicateClasses()}.
+	 */
+	private final Map<String, Integer> classFileCounts = new ConcurrentHashMap<>();
 
 	/** Whether to ignore non-identical duplicates of class files. */
 	private final EDuplicateClassFileBehavior duplicateClassFileBehavior;
 
 	private final ClassNotFoundLogger classNotFoundLogger;
 
+	/** Optional file in which analyzed classes are persisted across conversions. May be null. */
+	private final ProbesCacheFile probesCacheFile;
+
 	/** Constructor. */
 	public ProbesCache(ILogger logger, EDuplicateClassFileBehavior duplicateClassFileBehavior) {
+		this(logger, duplicateClassFileBehavior, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param probesCacheFile File from which previously analyzed classes are loaded and to which newly analyzed classes
+	 *                        are appended. May be null.
+	 */
+	public ProbesCache(ILogger logger, EDuplicateClassFileBehavior duplicateClassFileBehavior,
+					   ProbesCacheFile probesCacheFile) {
 		this.logger = logger;
 		this.classNotFoundLogger = new ClassNotFoundLogger(logger);
 		this.duplicateClassFileBehavior = duplicateClassFileBehavior;
+		this.probesCacheFile = probesCacheFile;
 	}
 
-	/** Adds a new class entry to the cache and returns its {@link ClassCoverageLookup}. */
-	public ClassCoverageLookup createClass(long classId, String className) {
-		if (containedClasses.contains(className)) {
-			if (duplicateClassFileBehavior != EDuplicateClassFileBehavior.IGNORE) {
-				logger.warn("Non-identical class file for class " + className + "."
-						+ " This happens when a class with the same fully-qualified name is loaded twice but the two loaded class files are not identical."
-						+ " A common reason for this is that the same library or shared code is included twice in your application but in two different versions."
-						+ " The produced coverage for this class may not be accurate or may even be unusable."
-						+ " To fix this problem, please resolve the conflict between both class files in your application.");
-			}
-			if (duplicateClassFileBehavior == EDuplicateClassFileBehavior.FAIL) {
-				throw new IllegalStateException(
-						"Found non-identical class file for class " + className + ". See logs for more details.");
-			}
+	/**
+	 * Creates the {@link ClassCoverageLookup} for a class that must be analyzed. The class is only added to the cache
+	 * once its analysis succeeded and {@link #finishClass(long, ClassCoverageLookup)} is called, so a failed analysis
+	 * never hides an identical class file that is analyzed concurrently or later.
+	 */
+	public ClassCoverageLookup createClass(String className) {
+		return new ClassCoverageLookup(className);
+	}
+
+	/**
+	 * Adds the class with the given ID from the {@link #probesCacheFile} to the cache. Returns false if the class is
+	 * not contained in the file, in which case it must be analyzed.
+	 */
+	public boolean addClassFromCacheFile(long classId) {
+		if (probesCacheFile == null) {
+			return false;
+		}
+		ClassCoverageLookup classCoverageLookup = probesCacheFile.read(classId);
+		if (classCoverageLookup == null) {
+			return false;
+		}
+		register(classId, classCoverageLookup);
+		return true;
+	}
+
+	/**
+	 * Adds a class created with {@link #createClass(String)} to the cache once its analysis succeeded, so it can be
+	 * appended to the {@link #probesCacheFile} with {@link #saveCacheFile()}. Does nothing if an identical class file
+	 * has been added concurrently. Non-identical class files with the same name are recorded and must be reported with
+	 * {@link #handleDuplicateClasses()} once all classes have been added.
+	 */
+	public void finishClass(long classId, ClassCoverageLookup classCoverageLookup) {
+		if (register(classId, classCoverageLookup) && probesCacheFile != null) {
+			probesCacheFile.add(classId, classCoverageLookup);
+		}
+	}
+
+	/** Appends all newly analyzed classes to the {@link #probesCacheFile}, if any. */
+	public void saveCacheFile() {
+		if (probesCacheFile == null) {
+			return;
+		}
+		try {
+			probesCacheFile.save();
+		} catch (IOException e) {
+			logger.warn("Failed to write the probes cache file " + probesCacheFile
+					+ ". The next conversion will have to analyze the class files again.", e);
+		}
+	}
+
+	/**
+	 * Adds the given lookup to the cache. Returns false if a class with the same class ID has already been added.
+	 */
+	private boolean register(long classId, ClassCoverageLookup classCoverageLookup) {
+		if (classCoverageLookups.putIfAbsent(classId, classCoverageLookup) != null) {
+			return false;
+		}
+		classFileCounts.merge(classCoverageLookup.getClassName(), 1, Integer::sum);
+		return true;
+	}
+
+	/**
+	 * Handles all non-identical duplicate class files found during the analysis according to the
+	 * {@link #duplicateClassFileBehavior}. Since this happens after the analysis, the outcome does not depend on the
+	 * order in which the class files were analyzed.
+	 */
+	public void handleDuplicateClasses() throws CoverageGenerationException {
+		if (duplicateClassFileBehavior == EDuplicateClassFileBehavior.IGNORE) {
+			return;
+		}
+		List<String> sortedDuplicateClasses = classFileCounts.entrySet().stream()
+				.filter(entry -> entry.getValue() > 1).map(Map.Entry::getKey).sorted()
+				.collect(Collectors.toList());
+		if (sortedDuplicateClasses.isEmpty()) {
+			return;
+		}
+		for (String className : sortedDuplicateClasses) {
+			logger.warn("Non-identical class file for class " + className + "."
+					+ " This happens when a class with the same fully-qualified name is loaded twice but the two loaded class files are not identical."
+					+ " A common reason for this is that the same library or shared code is included twice in your application but in two different versions."
+					+ " The produced coverage for this class may not be accurate or may even be unusable."
+					+ " To fix this problem, please resolve the conflict between both class files in your application.");
+		}
+		if (duplicateClassFileBehavior == EDuplicateClassFileBehavior.FAIL) {
+			throw new CoverageGenerationException(
+					"Found non-identical class files for classes " + String.join(", ", sortedDuplicateClasses)
+							+ ". See logs for more details.");
 		}
-		containedClasses.add(className);
-		ClassCoverageLookup classCoverageLookup = new ClassCoverageLookup(className);
-		classCoverageLookups.put(classId, classCoverageLookup);
-		return classCoverageLookup;
 	}
 
 	/** Returns whether a class with the given class ID has already been analyzed. */
@@ -0,0 +1,536 @@
+package com.teamscale.report.testwise.jacoco.cache;
+
+import com.teamscale.report.util.ILogger;
+import org.jacoco.core.JaCoCo;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * A file that persists {@link ClassCoverageLookup}s across conversions, so class files that did not change since a
+ * previous conversion do not need to be analyzed again. Classes are identified by their class ID (CRC64 of the class
+ * file).
+ * <p>
+ * The file is memory-mapped when opened and only an index from class ID to file position is built eagerly. The
+ * lookups are decoded and their checksums verified when {@link #read(long)} is called for a class ID. Newly analyzed
+ * classes are collected with {@link #add(long, ClassCoverageLookup)} and appended to the file with {@link #save()}.
+ * <p>
+ * The file may be shared by concurrent conversions, e.g. of several CI jobs. Saving holds an exclusive lock on a
+ * separate lock file next to the cache file and appends after the records other conversions saved in the meantime.
+ * Once the file would grow beyond its maximum size, it is compacted to the classes used by the current conversion
+ * instead. This only happens if no other conversion wrote a newer generation since the file was opened. Otherwise, the
+ * classes used by the current conversion are merged into the newer generation, so the classes used by the other
+ * conversion are kept.
+ * <p>
+ * Since other conversions may still map the file, it is never replaced or truncated, which would fail on Windows.
+ * Instead, the records are stored in generation files next to the cache file, which are named like the cache file
+ * followed by the generation number (e.g. {@code probes.cache.3}). Conversions open the latest generation. Compacting
+ * or replacing an incompatible or incomplete file writes the next generation, after which older generations are
+ * deleted as soon as they are no longer mapped.
+ * <p>
+ * The file consists of a header ({@link #MAGIC_NUMBER}, {@link #FORMAT_VERSION}, {@link JaCoCo#VERSION} as written by
+ * {@link DataOutputStream#writeUTF(String)}) followed by one record per class:
+ * <ul>
+ * <li>class ID (long), the length of the remaining record in bytes (int) and the CRC32 checksum of the class ID and
+ * the remaining record (int)</li>
+ * <li>class name and source file name as UTF-8 strings prefixed by their length (-1 for null)</li>
+ * <li>the number of probes n (int), followed by n+1 range offsets (int), n unmapped flags (byte), the number of line
+ * range values m (int) and m line range values (int)</li>
+ * </ul>
+ * Files with a different header are ignored and replaced by a new generation on {@link #save()}. Since the header
+ * contains the JaCoCo version, updating JaCoCo invalidates the file even if the format stays the same.
+ */
+public class ProbesCacheFile {
+
+	/** Identifies probes cache files ("TSPC"). */
+	private static final int MAGIC_NUMBER = 0x54535043;
+
+	/**
+	 * Version of the file format. Must be increased whenever the format or the probe analysis changes. Updating JaCoCo
+	 * is covered by the JaCoCo version in the header.
+	 */
+	private static final int FORMAT_VERSION = 3;
+
+	/** The header every compatible file starts with. */
+	private static final byte[] HEADER = createHeader();
+
+	/** Matches the suffix of generation files. */
+	private static final Pattern GENERATION_SUFFIX_PATTERN = Pattern.compile("\\.(\\d+)");
+
+	/** Size of the class ID, record length and checksum preceding each record in bytes. */
+	private static final int RECORD_HEADER_SIZE = 16;
+
+	/** The default maximum size of the file in bytes. */
+	private static final long DEFAULT_MAX_FILE_SIZE = 512L * 1024 * 1024;
+
+	/** Serializes saving within this JVM, since file locks are held on behalf of the whole JVM. */
+	private static final Object SAVE_LOCK = new Object();
+
+	/** The cache file, which names the generation files that contain the records. */
+	private final File file;
+
+	/** The logger. */
+	private final ILogger logger;
+
+	/**
+	 * The size the file may grow to before it is compacted. Must not exceed {@link Integer#MAX_VALUE}, since larger
+	 * files cannot be mapped.
+	 */
+	private final long maxFileSize;
+
+	/** The records of the latest generation when the file was opened. */
+	private final MappedRecords records;
+
+	/** Classes read from the file, which are kept when the file is compacted. */
+	private final Set<Long> usedClassIds = ConcurrentHashMap.newKeySet();
+
+	/** Classes that have been analyzed since the file was opened and need to be appended. */
+	private final Map<Long, ClassCoverageLookup> newClasses = new ConcurrentHashMap<>();
+
+	/**
+	 * Opens the given file. A missing, incompatible or corrupt file is not an error, since it merely means that (some
+	 * of) the classes must be analyzed again.
+	 */
+	public ProbesCacheFile(File file, ILogger logger) {
+		this(file, logger, DEFAULT_MAX_FILE_SIZE);
+	}
+
+	/** Constructor with a custom {@link #maxFileSize}. */
+	/* package */ ProbesCacheFile(File file, ILogger logger, long maxFileSize) {
+		this.file = file;
+		this.logger = logger;
+		this.maxFileSize = Math.min(maxFileSize, Integer.MAX_VALUE);
+		this.records = mapRecords();
+	}
+
+	/** Creates the {@link #HEADER}. */
+	private static byte[] createHeader() {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		try (DataOutputStream output = new DataOutputStream(header)) {
+			output.writeInt(MAGIC_NUMBER);
+			output.writeInt(FORMAT_VERSION);
+			output.writeUTF(JaCoCo.VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot happen for a ByteArrayOutputStream", e);
+		}
+		return header.toByteArray();
+	}
+
+	/** Returns the latest existing generation or -1 if there is none. */
+	private long findLatestGeneration() {
+		String[] fileNames = file.getAbsoluteFile().getParentFile().list();
+		long latestGeneration = -1;
+		if (fileNames == null) {
+			return latestGeneration;
+		}
+		for (String fileName : fileNames) {
+			if (!fileName.startsWith(file.getName())) {
+				continue;
+			}
+			Matcher matcher = GENERATION_SUFFIX_PATTERN.matcher(fileName.substring(file.getName().length()));
+			if (matcher.matches()) {
+				try {
+					latestGeneration = Math.max(latestGeneration, Long.parseLong(matcher.group(1)));
+				} catch (NumberFormatException e) {
+					// Not written by us
+				}
+			}
+		}
+		return latestGeneration;
+	}
+
+	/** Returns the file that contains the given generation. */
+	private File getGenerationFile(long generation) {
+		return new File(file.getAbsoluteFile().getParentFile(), file.getName() + "." + generation);
+	}
+
+	/** Maps the latest generation into memory and indexes its records. */
+	private MappedRecords mapRecords() {
+		long generation = findLatestGeneration();
+		if (generation < 0) {
+			return MappedRecords.empty(generation);
+		}
+		File generationFile = getGenerationFile(generation);
+		try (FileChannel channel = FileChannel.open(generationFile.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				logger.warn("Ignoring probes cache file " + generationFile + ", since it is too large to be mapped "
+						+ "into memory. It will be replaced.");
+				return MappedRecords.empty(generation);
+			}
+			ByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (!hasCompatibleHeader(content)) {
+				logger.info("Ignoring probes cache file " + generationFile + ", since it was written by a different "
+						+ "version.");
+				return MappedRecords.empty(generation);
+			}
+			return indexRecords(generation, content);
+		} catch (IOException e) {
+			logger.warn("Failed to read probes cache file " + generationFile + ". All class files will be analyzed.",
+					e);
+			return MappedRecords.empty(generation);
+		}
+	}
+
+	/** Returns whether the given content starts with the {@link #HEADER}. */
+	private static boolean hasCompatibleHeader(ByteBuffer content) {
+		if (content.limit() < HEADER.length) {
+			return false;
+		}
+		ByteBuffer header = content.duplicate();
+		header.position(0);
+		header.limit(HEADER.length);
+		return header.equals(ByteBuffer.wrap(HEADER));
+	}
+
+	/** Builds the index of the records in the given file content. */
+	private MappedRecords indexRecords(long generation, ByteBuffer content) {
+		Map<Long, Integer> recordPositions = new HashMap<>();
+		int position = HEADER.length;
+		while (position + RECORD_HEADER_SIZE <= content.limit()) {
+			long classId = content.getLong(position);
+			int recordLength = content.getInt(position + 8);
+			long nextPosition = (long) position + RECORD_HEADER_SIZE + recordLength;
+			if (recordLength < 0 || nextPosition > content.limit()) {
+				break;
+			}
+			recordPositions.put(classId, position);
+			position = (int) nextPosition;
+		}
+		if (position != content.limit()) {
+			logger.warn("Probes cache file " + getGenerationFile(generation) + " ends with an incomplete record, "
+					+ "which will be removed.");
+		}
+		return new MappedRecords(generation, content, recordPositions, position);
+	}
+
+	/**
+	 * Returns the lookup for the class with the given ID or null if it is not contained in the file or its record is
+	 * corrupt. May be called concurrently.
+	 */
+	public ClassCoverageLookup read(long classId) {
+		ByteBuffer record = records.getValidRecord(classId);
+		if (record == null) {
+			if (records.contains(classId)) {
+				logger.warn("Ignoring corrupt record in probes cache file " + file + ".");
+			}
+			return null;
+		}
+		try {
+			String className = readString(record);
+			String sourceFileName = readString(record);
+			int probeCount = record.getInt();
+			int[] probeRangeOffsets = readInts(record, probeCount + 1);
+			boolean[] unmappedProbes = new boolean[probeCount];
+			for (int i = 0; i < probeCount; i++) {
+				unmappedProbes[i] = record.get() != 0;
+			}
+			int[] probeLineRanges = readInts(record, record.getInt());
+			usedClassIds.add(classId);
+			return new ClassCoverageLookup(className, sourceFileName, probeRangeOffsets, probeLineRanges,
+					unmappedProbes);
+		} catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+			logger.warn("Ignoring corrupt record in probes cache file " + file + ".", e);
+			return null;
+		}
+	}
+
+	/** Reads a string prefixed by its length. */
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/** Reads the given number of ints. */
+	private static int[] readInts(ByteBuffer buffer, int count) {
+		int[] values = new int[count];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + count * 4);
+		return values;
+	}
+
+	/**
+	 * Adds a newly analyzed class, which is appended to the file on {@link #save()}. May be called concurrently.
+	 */
+	public void add(long classId, ClassCoverageLookup classCoverageLookup) {
+		newClasses.put(classId, classCoverageLookup);
+	}
+
+	/**
+	 * Appends all classes added since the file was opened to the file, unless another conversion has saved them in
+	 * the meantime. Compacts the file if it would grow beyond its maximum size.
+	 */
+	public void save() throws IOException {
+		if (newClasses.isEmpty()) {
+			return;
+		}
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Failed to create directory " + directory.getAbsolutePath());
+		}
+		synchronized (SAVE_LOCK) {
+			try (FileChannel lockChannel = FileChannel.open(getLockFile(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+				 FileLock ignored = lockChannel.lock()) {
+				saveWhileLocked();
+			}
+		}
+		newClasses.clear();
+	}
+
+	/** Returns the file that is locked while the cache file is written. */
+	private Path getLockFile() {
+		return new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".lock").toPath();
+	}
+
+	/** Saves the new classes. Must only be called while holding the lock. */
+	private void saveWhileLocked() throws IOException {
+		// Other conversions may have changed the file since it was opened
+		MappedRecords currentRecords = mapRecords();
+
+		ByteArrayOutputStream newRecords = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(newRecords);
+		for (Map.Entry<Long, ClassCoverageLookup> entry : newClasses.entrySet()) {
+			if (currentRecords.getValidRecord(entry.getKey()) == null) {
+				writeRecord(output, entry.getKey(), entry.getValue());
+			}
+		}
+		boolean isOpenedGeneration = currentRecords.generation == records.generation;
+		if (!isOpenedGeneration) {
+			// Another conversion wrote a newer generation, which may lack the classes this conversion read
+			for (long classId : usedClassIds) {
+				if (currentRecords.getValidRecord(classId) == null) {
+					records.copyValidRecord(classId, output);
+				}
+			}
+		}
+		if (newRecords.size() == 0) {
+			return;
+		}
+
+		boolean fitsIntoFile = currentRecords.validLength + newRecords.size() <= maxFileSize;
+		if (fitsIntoFile && currentRecords.isAppendable()) {
+			append(currentRecords, newRecords);
+		} else if (fitsIntoFile || !isOpenedGeneration) {
+			// The classes used by this conversion are only known for the opened generation, so a newer generation is
+			// kept completely. It is compacted by the next conversion that opens it.
+			writeNextGeneration(currentRecords, currentRecords.getClassIds(), newRecords);
+		} else {
+			writeNextGeneration(currentRecords, usedClassIds, newRecords);
+			logger.info("Compacted probes cache file " + file + " to the classes used by this conversion, since it "
+					+ "exceeded " + maxFileSize + " bytes.");
+		}
+	}
+
+	/** Appends the given records to the generation of the given records. */
+	private void append(MappedRecords currentRecords, ByteArrayOutputStream newRecords) throws IOException {
+		try (FileChannel channel = FileChannel.open(getGenerationFile(currentRecords.generation).toPath(),
+				StandardOpenOption.WRITE)) {
+			channel.position(currentRecords.validLength);
+			OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel));
+			newRecords.writeTo(output);
+			output.flush();
+		}
+	}
+
+	/**
+	 * Writes the next generation, which contains the given classes of the current records and the given new records,
+	 * and deletes the older generations.
+	 */
+	private void writeNextGeneration(MappedRecords currentRecords, Set<Long> keptClassIds,
+									 ByteArrayOutputStream newRecords) throws IOException {
+		long nextGeneration = currentRecords.generation + 1;
+		Path directory = file.getAbsoluteFile().getParentFile().toPath();
+		Path nextGenerationFile = Files.createTempFile(directory, file.getName(), ".tmp");
+		try {
+			try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(nextGenerationFile))) {
+				output.write(HEADER);
+				for (long classId : keptClassIds) {
+					currentRecords.copyValidRecord(classId, output);
+				}
+				newRecords.writeTo(output);
+			}
+			// Other conversions only open complete generations, since the target does not exist yet
+			Files.move(nextGenerationFile, getGenerationFile(nextGeneration).toPath(),
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(nextGenerationFile);
+		}
+		deleteGenerationsBefore(nextGeneration);
+	}
+
+	/**
+	 * Deletes all generations before the given one. Generations that are still mapped by other conversions cannot be
+	 * deleted on Windows, so they are kept until a later save.
+	 */
+	private void deleteGenerationsBefore(long generation) {
+		for (long olderGeneration = generation - 1; olderGeneration >= 0; olderGeneration--) {
+			File olderGenerationFile = getGenerationFile(olderGeneration);
+			if (olderGenerationFile.exists() && !olderGenerationFile.delete()) {
+				logger.debug("Could not delete probes cache file " + olderGenerationFile + " yet. It may still be "
+						+ "in use by another conversion.");
+			}
+		}
+	}
+
+	/** Writes the record of a single class. */
+	private static void writeRecord(DataOutputStream output, long classId,
+									ClassCoverageLookup classCoverageLookup) throws IOException {
+		ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+		DataOutputStream record = new DataOutputStream(recordBytes);
+		writeString(record, classCoverageLookup.getClassName());
+		writeString(record, classCoverageLookup.getSourceFileName());
+		boolean[] unmappedProbes = classCoverageLookup.getUnmappedProbes();
+		record.writeInt(unmappedProbes.length);
+		for (int offset : classCoverageLookup.getProbeRangeOffsets()) {
+			record.writeInt(offset);
+		}
+		for (boolean unmappedProbe : unmappedProbes) {
+			record.writeByte(unmappedProbe ? 1 : 0);
+		}
+		int[] probeLineRanges = classCoverageLookup.getProbeLineRanges();
+		record.writeInt(probeLineRanges.length);
+		for (int value : probeLineRanges) {
+			record.writeInt(value);
+		}
+
+		output.writeLong(classId);
+		output.writeInt(recordBytes.size());
+		output.writeInt(checksum(classId, ByteBuffer.wrap(recordBytes.toByteArray())));
+		recordBytes.writeTo(output);
+	}
+
+	/** Writes a string prefixed by its length. */
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		if (value == null) {
+			output.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	/** Returns the CRC32 checksum of the given class ID and the remaining bytes of the given record. */
+	private static int checksum(long classId, ByteBuffer record) {
+		CRC32 crc = new CRC32();
+		ByteBuffer classIdBytes = ByteBuffer.allocate(8);
+		classIdBytes.putLong(0, classId);
+		crc.update(classIdBytes);
+		crc.update(record);
+		return (int) crc.getValue();
+	}
+
+	@Override
+	public String toString() {
+		return file.getPath();
+	}
+
+	/** The mapped content of a generation together with the index of its records. */
+	private static class MappedRecords {
+
+		/** The generation or -1 if there is none yet. */
+		private final long generation;
+
+		/** The mapped content of the file. Null if there was no valid file. */
+		private final ByteBuffer content;
+
+		/** Mapping from class ID to the position of the header of its record in {@link #content}. */
+		private final Map<Long, Integer> recordPositions;
+
+		/** The number of bytes at the beginning of the file that contain the header and complete records. */
+		private final int validLength;
+
+		private MappedRecords(long generation, ByteBuffer content, Map<Long, Integer> recordPositions,
+							  int validLength) {
+			this.generation = generation;
+			this.content = content;
+			this.recordPositions = recordPositions;
+			this.validLength = validLength;
+		}
+
+		/** Returns the records of a missing or ignored generation. */
+		private static MappedRecords empty(long generation) {
+			return new MappedRecords(generation, null, Collections.emptyMap(), 0);
+		}
+
+		/**
+		 * Returns whether new records can be appended to the generation, i.e. it is compatible and does not end with
+		 * an incomplete record, which would have to be truncated.
+		 */
+		private boolean isAppendable() {
+			return content != null && validLength == content.limit();
+		}
+
+		/** Returns the IDs of all classes that have a (possibly corrupt) record. */
+		private Set<Long> getClassIds() {
+			return recordPositions.keySet();
+		}
+
+		/** Returns whether the file contains a (possibly corrupt) record for the given class. */
+		private boolean contains(long classId) {
+			return recordPositions.containsKey(classId);
+		}
+
+		/**
+		 * Returns a buffer positioned at the start and limited to the end of the record of the given class or null if
+		 * there is no record or its checksum does not match. May be called concurrently.
+		 */
+		private ByteBuffer getValidRecord(long classId) {
+			Integer position = recordPositions.get(classId);
+			if (position == null) {
+				return null;
+			}
+			int recordLength = content.getInt(position + 8);
+			int expectedChecksum = content.getInt(position + 12);
+			ByteBuffer record = content.duplicate();
+			record.limit(position + RECORD_HEADER_SIZE + recordLength);
+			record.position(position + RECORD_HEADER_SIZE);
+			if (checksum(classId, record.duplicate()) != expectedChecksum) {
+				return null;
+			}
+			return record;
+		}
+
+		/** Copies the complete record of the given class to the output if it exists and is valid. */
+		private void copyValidRecord(long classId, OutputStream output) throws IOException {
+			if (content == null || getValidRecord(classId) == null) {
+				return;
+			}
+			int position = recordPositions.get(classId);
+			int recordLength = content.getInt(position + 8);
+			byte[] bytes = new byte[RECORD_HEADER_SIZE + recordLength];
+			ByteBuffer record = content.duplicate();
+			record.position(position);
+			record.get(bytes);
+			output.write(bytes);
+		}
+	}
+}
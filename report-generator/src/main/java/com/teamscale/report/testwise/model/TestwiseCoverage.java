@@ -3,14 +3,17 @@ package com.teamscale.report.testwise.model;
 import com.teamscale.report.testwise.model.builder.TestCoverageBuilder;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-/** Container for coverage produced by multiple tests. */
+/**
+ * Container for coverage produced by multiple tests. Coverage may be added concurrently. Coverage for the same test is
+ * merged while holding a lock for only that test.
+ */
 public class TestwiseCoverage {
 
 	/** A mapping from test ID to {@link TestCoverageBuilder}. */
-	private final Map<String, TestCoverageBuilder> tests = new HashMap<>();
+	private final Map<String, TestCoverageBuilder> tests = new ConcurrentHashMap<>();
 
 	/**
 	 * Adds the {@link TestCoverageBuilder} to the map.
@@ -20,12 +23,10 @@ public class TestwiseCoverage {
 		if (coverage == null || coverage.isEmpty()) {
 			return;
 		}
-		if (tests.containsKey(coverage.getUniformPath())) {
-			TestCoverageBuilder testCoverage = tests.get(coverage.getUniformPath());
-			testCoverage.addAll(coverage.getFiles());
-		} else {
-			tests.put(coverage.getUniformPath(), coverage);
-		}
+		tests.merge(coverage.getUniformPath(), coverage, (testCoverage, addedCoverage) -> {
+			testCoverage.addAll(addedCoverage.getFiles());
+			return testCoverage;
+		});
 	}
 
 	/**
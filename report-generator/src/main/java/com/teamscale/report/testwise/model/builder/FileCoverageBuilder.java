@@ -5,12 +5,9 @@ import com.teamscale.report.testwise.model.LineRange;
 import org.conqat.lib.commons.assertion.CCSMAssert;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /** Holds coverage of a single file. */
 public class FileCoverageBuilder {
@@ -21,8 +18,11 @@ public class FileCoverageBuilder {
 	/** The name of the file. */
 	private final String fileName;
 
-	/** A set of line numbers that have been covered. */
-	private final Set<Integer> coveredLines = new HashSet<>();
+	/**
+	 * The line numbers that have been covered. Bit i is set if line i has been covered. Lines are 1-based, so
+	 * non-positive line numbers, e.g. JaCoCo's unknown line (-1), are ignored when adding lines.
+	 */
+	private final BitSet coveredLines = new BitSet();
 
 	/** Constructor. */
 	public FileCoverageBuilder(String path, String file) {
@@ -40,55 +40,62 @@ public class FileCoverageBuilder {
 		return path;
 	}
 
-	/** Adds a line as covered. */
+	/** Adds a line as covered. Ignores non-positive lines. */
 	public void addLine(int line) {
-		coveredLines.add(line);
+		if (line > 0) {
+			coveredLines.set(line);
+		}
 	}
 
-	/** Adds a line range as covered. */
+	/**
+	 * Adds a line range as covered. Does nothing if the end lies before the start. Ignores the non-positive lines of
+	 * the range.
+	 */
 	public void addLineRange(int start, int end) {
-		coveredLines.addAll(IntStream.rangeClosed(start, end).boxed().collect(Collectors.toList()));
+		start = Math.max(start, 1);
+		if (end < start) {
+			return;
+		}
+		coveredLines.set(start, end + 1);
 	}
 
-	/** Adds set of lines as covered. */
+	/** Adds set of lines as covered. Ignores non-positive lines. */
 	public void addLines(Set<Integer> range) {
-		coveredLines.addAll(range);
+		for (Integer line : range) {
+			addLine(line);
+		}
 	}
 
 	/** Merges the list of ranges into the current list. */
 	public void merge(FileCoverageBuilder other) {
 		CCSMAssert.isTrue(other.fileName.equals(fileName) && other.path.equals(path),
 				"Cannot merge coverage of two different files! This is a bug!");
-		coveredLines.addAll(other.coveredLines);
+		coveredLines.or(other.coveredLines);
 	}
 
 	/**
 	 * Merges all overlapping and neighboring {@link LineRange}s.
-	 * E.g. a list of [[1-5],[3-7],[8-10],[12-14]] becomes [[1-10],[12-14]]
+	 * E.g. a list of [[1-5],[3-7],[8-10],[12-14]] becomes [[1-10],[12-14]]. Ignores non-positive lines.
 	 */
 	public static List<LineRange> compactifyToRanges(Set<Integer> lines) {
-		if(lines.isEmpty()) {
-			return new ArrayList<>();
+		BitSet lineBits = new BitSet();
+		for (Integer line : lines) {
+			if (line > 0) {
+				lineBits.set(line);
+			}
 		}
+		return compactifyToRanges(lineBits);
+	}
 
-		List<Integer> linesList = new ArrayList<>(lines);
-		linesList.sort(Integer::compareTo);
-
-		Integer firstLine = linesList.get(0);
-		LineRange currentRange = new LineRange(firstLine, firstLine);
-
+	/** Converts the set bits of the given {@link BitSet} to a sorted list of non-neighboring {@link LineRange}s. */
+	private static List<LineRange> compactifyToRanges(BitSet lines) {
 		List<LineRange> compactifiedRanges = new ArrayList<>();
-		compactifiedRanges.add(currentRange);
-
-		for (Integer currentLine : linesList) {
-			if(currentRange.getEnd() == currentLine || currentRange.getEnd() == currentLine - 1) {
-				currentRange.setEnd(currentLine);
-			} else {
-				currentRange = new LineRange(currentLine, currentLine);
-				compactifiedRanges.add(currentRange);
-			}
+		int start = lines.nextSetBit(0);
+		while (start >= 0) {
+			int end = lines.nextClearBit(start) - 1;
+			compactifiedRanges.add(new LineRange(start, end));
+			start = lines.nextSetBit(end + 1);
 		}
-
 		return compactifiedRanges;
 	}
 
@@ -98,8 +105,20 @@ public class FileCoverageBuilder {
 	 * Individual ranges are separated by commas. E.g. 1-5,7,9-11.
 	 */
 	public String computeCompactifiedRangesAsString() {
-		List<LineRange> coveredRanges = compactifyToRanges(coveredLines);
-		return coveredRanges.stream().map(LineRange::toReportString).collect(Collectors.joining(","));
+		StringBuilder output = new StringBuilder();
+		int start = coveredLines.nextSetBit(0);
+		while (start >= 0) {
+			int end = coveredLines.nextClearBit(start) - 1;
+			output.append(start);
+			if (end != start) {
+				output.append('-').append(end);
+			}
+			start = coveredLines.nextSetBit(end + 1);
+			if (start >= 0) {
+				output.append(',');
+			}
+		}
+		return output.toString();
 	}
 
 	/** Returns true if there is no coverage for the file yet. */
@@ -5,9 +5,9 @@ import com.teamscale.report.testwise.model.PathCoverage;
 
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.stream.Collectors.toList;
 
@@ -18,7 +18,7 @@ public class PathCoverageBuilder {
 	private final String path;
 
 	/** Mapping from file names to {@link FileCoverageBuilder}. */
-	private final Map<String, FileCoverageBuilder> fileCoverageList = new HashMap<>();
+	private final Map<String, FileCoverageBuilder> fileCoverageList = new ConcurrentHashMap<>();
 
 	/** Constructor. */
 	public PathCoverageBuilder(String path) {
@@ -32,15 +32,14 @@ public class PathCoverageBuilder {
 
 	/**
 	 * Adds the given {@link FileCoverageBuilder} to the container.
-	 * If coverage for the same file already exists it gets merged.
+	 * If coverage for the same file already exists it gets merged. May be called concurrently, in which case only
+	 * merges into the same file are serialized.
 	 */
 	public void add(FileCoverageBuilder fileCoverage) {
-		if (fileCoverageList.containsKey(fileCoverage.getFileName())) {
-			FileCoverageBuilder existingFile = fileCoverageList.get(fileCoverage.getFileName());
-			existingFile.merge(fileCoverage);
-		} else {
-			fileCoverageList.put(fileCoverage.getFileName(), fileCoverage);
-		}
+		fileCoverageList.merge(fileCoverage.getFileName(), fileCoverage, (existingFile, addedFile) -> {
+			existingFile.merge(addedFile);
+			return existingFile;
+		});
 	}
 
 	/** Returns a collection of {@link FileCoverageBuilder}s associated with this path. */
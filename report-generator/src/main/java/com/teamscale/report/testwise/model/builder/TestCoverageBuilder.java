@@ -3,20 +3,20 @@ package com.teamscale.report.testwise.model.builder;
 import com.teamscale.report.testwise.model.PathCoverage;
 
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.stream.Collectors.toList;
 
-/** Generic holder of test coverage of a single test based on line-ranges. */
+/** Generic holder of test coverage of a single test based on line-ranges. Coverage may be added concurrently. */
 public class TestCoverageBuilder {
 
 	/** The uniformPath of the test (see TEST_IMPACT_ANALYSIS_DOC.md for more information). */
 	private final String uniformPath;
 
 	/** Mapping from path names to all files on this path. */
-	private final Map<String, PathCoverageBuilder> pathCoverageList = new HashMap<>();
+	private final Map<String, PathCoverageBuilder> pathCoverageList = new ConcurrentHashMap<>();
 
 	/** Constructor. */
 	public TestCoverageBuilder(String uniformPath) {
@@ -1,16 +1,19 @@
 package com.teamscale.report.testwise.model.builder;
 
 import com.teamscale.client.TestDetails;
+import com.teamscale.report.testwise.TestwiseCoverageReportWriter;
 import com.teamscale.report.testwise.model.TestExecution;
 import com.teamscale.report.testwise.model.TestInfo;
 import com.teamscale.report.testwise.model.TestwiseCoverageReport;
 import org.conqat.lib.commons.collections.CollectionUtils;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /** Container for coverage produced by multiple tests. */
 public class TestwiseCoverageReportBuilder {
@@ -26,6 +29,34 @@ public class TestwiseCoverageReportBuilder {
 			Collection<TestDetails> testDetailsList,
 			Collection<TestCoverageBuilder> testCoverage,
 			Collection<TestExecution> testExecutions
+	) {
+		TestwiseCoverageReport report = new TestwiseCoverageReport();
+		for (TestInfo testInfo : collect(testDetailsList, testCoverage, testExecutions).build()) {
+			report.tests.add(testInfo);
+		}
+		return report;
+	}
+
+	/**
+	 * Same as {@link #createFrom(Collection, Collection, Collection)}, but writes the tests one by one to the given
+	 * writer instead of creating the whole report in memory.
+	 */
+	public static void writeTo(
+			TestwiseCoverageReportWriter writer,
+			Collection<TestDetails> testDetailsList,
+			Collection<TestCoverageBuilder> testCoverage,
+			Collection<TestExecution> testExecutions
+	) throws IOException {
+		for (TestInfo testInfo : collect(testDetailsList, testCoverage, testExecutions).build()) {
+			writer.writeTestInfo(testInfo);
+		}
+	}
+
+	/** Creates a builder that contains the given test details, coverage and executions. */
+	private static TestwiseCoverageReportBuilder collect(
+			Collection<TestDetails> testDetailsList,
+			Collection<TestCoverageBuilder> testCoverage,
+			Collection<TestExecution> testExecutions
 	) {
 		TestwiseCoverageReportBuilder report = new TestwiseCoverageReportBuilder();
 		for (TestDetails testDetails : testDetailsList) {
@@ -47,7 +78,7 @@ public class TestwiseCoverageReportBuilder {
 			}
 			container.setExecution(testExecution);
 		}
-		return report.build();
+		return report;
 	}
 
 	private static TestInfoBuilder resolveUniformPath(TestwiseCoverageReportBuilder report, String uniformPath) {
@@ -63,18 +94,19 @@ public class TestwiseCoverageReportBuilder {
 		return testInfoBuilder;
 	}
 
-	private TestwiseCoverageReport build() {
-		TestwiseCoverageReport report = new TestwiseCoverageReport();
+	/**
+	 * Returns the {@link TestInfo}s sorted by uniform path. The {@link TestInfo}s are built lazily during the iteration,
+	 * so callers that process them one by one never hold all of them in memory.
+	 */
+	private Iterable<TestInfo> build() {
 		List<TestInfoBuilder> testInfoBuilders = CollectionUtils
 				.sort(tests.values(), Comparator.comparing(TestInfoBuilder::getUniformPath));
-		for (TestInfoBuilder testInfoBuilder : testInfoBuilders) {
+		return () -> testInfoBuilders.stream().map(testInfoBuilder -> {
 			TestInfo testInfo = testInfoBuilder.build();
 			if (testInfo == null) {
 				System.err.println("No coverage for test '" + testInfoBuilder.getUniformPath() + "'");
-				continue;
 			}
-			report.tests.add(testInfo);
-		}
-		return report;
+			return testInfo;
+		}).filter(Objects::nonNull).iterator();
 	}
 }
@@ -5,16 +5,23 @@ import com.teamscale.report.jacoco.dump.Dump;
 import com.teamscale.report.util.AntPatternIncludeFilter;
 import com.teamscale.report.util.ILogger;
 import org.conqat.lib.commons.collections.CollectionUtils;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
 import org.conqat.lib.commons.test.CCSMTestCaseBase;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.SessionInfo;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 
@@ -51,6 +58,51 @@ public class JaCoCoXmlReportGeneratorTest extends CCSMTestCaseBase {
 		runGenerator("different-duplicate-classes", EDuplicateClassFileBehavior.IGNORE);
 	}
 
+	/**
+	 * Ensures that reusing a generator for multiple dumps (as done for interval dumps) yields the same reports as a new
+	 * generator.
+	 */
+	@Test
+	public void testRepeatedConversionsYieldSameReports() throws Exception {
+		JaCoCoXmlReportGenerator generator = createGenerator("no-duplicates", EDuplicateClassFileBehavior.FAIL);
+		Dump emptyDump = new Dump(new SessionInfo("session-id", 124L, 125L), new ExecutionDataStore());
+
+		String initialReport = generator.convert(emptyDump);
+		assertThat(generator.convert(emptyDump)).isEqualTo(initialReport);
+		assertThat(generator.convert(createDummyDump())).isEqualTo(
+				createGenerator("no-duplicates", EDuplicateClassFileBehavior.FAIL).convert(createDummyDump()));
+		assertThat(generator.convert(emptyDump)).isEqualTo(initialReport);
+	}
+
+	/**
+	 * Ensures that a report can be streamed into a zip entry that is followed by further entries, as done for uploads.
+	 */
+	@Test
+	public void testReportIsStreamedWithoutClosingTheStream() throws Exception {
+		JaCoCoXmlReportGenerator generator = createGenerator("no-duplicates", EDuplicateClassFileBehavior.FAIL);
+		JaCoCoXmlReport report = generator.createReport(createDummyDump());
+
+		ByteArrayOutputStream zipContent = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(zipContent)) {
+			zipOutputStream.putNextEntry(new ZipEntry("coverage.xml"));
+			report.writeTo(zipOutputStream);
+			zipOutputStream.putNextEntry(new ZipEntry("metadata.txt"));
+			zipOutputStream.write(1);
+		}
+
+		try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zipContent.toByteArray()))) {
+			assertThat(zipInputStream.getNextEntry().getName()).isEqualTo("coverage.xml");
+			ByteArrayOutputStream entryContent = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			for (int read = zipInputStream.read(buffer); read >= 0; read = zipInputStream.read(buffer)) {
+				entryContent.write(buffer, 0, read);
+			}
+			assertThat(entryContent.toString(FileSystemUtils.UTF8_ENCODING))
+					.isEqualTo(generator.convert(createDummyDump()));
+			assertThat(zipInputStream.getNextEntry().getName()).isEqualTo("metadata.txt");
+		}
+	}
+
 	/** Creates a dummy dump. */
 	private static Dump createDummyDump() {
 		ExecutionDataStore store = new ExecutionDataStore();
@@ -62,12 +114,17 @@ public class JaCoCoXmlReportGeneratorTest extends CCSMTestCaseBase {
 	/** Runs the report generator. */
 	private void runGenerator(String testDataFolder,
 							  EDuplicateClassFileBehavior duplicateClassFileBehavior) throws IOException {
+		createGenerator(testDataFolder, duplicateClassFileBehavior).convert(createDummyDump());
+	}
+
+	/** Creates a report generator for the given test data folder. */
+	private JaCoCoXmlReportGenerator createGenerator(String testDataFolder,
+													 EDuplicateClassFileBehavior duplicateClassFileBehavior) {
 		File classFileFolder = useTestFile(testDataFolder);
 		AntPatternIncludeFilter includeFilter = new AntPatternIncludeFilter(CollectionUtils.emptyList(),
 				CollectionUtils.emptyList());
-		new JaCoCoXmlReportGenerator(Collections.singletonList(classFileFolder), includeFilter,
-				duplicateClassFileBehavior,
-				mock(ILogger.class)).convert(createDummyDump());
+		return new JaCoCoXmlReportGenerator(Collections.singletonList(classFileFolder), includeFilter,
+				duplicateClassFileBehavior, mock(ILogger.class));
 	}
 
 }
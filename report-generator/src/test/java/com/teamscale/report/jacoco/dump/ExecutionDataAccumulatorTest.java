@@ -0,0 +1,58 @@
+package com.teamscale.report.jacoco.dump;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests the {@link ExecutionDataAccumulator}. */
+public class ExecutionDataAccumulatorTest {
+
+	/** Tests that deltas only contain classes and probes that have not been seen before. */
+	@Test
+	public void testDeltaOnlyContainsNewProbes() {
+		ExecutionDataAccumulator accumulator = new ExecutionDataAccumulator();
+
+		ExecutionDataStore delta = accumulator.extractDelta(createStore(
+				new ExecutionData(1, "A", new boolean[]{true, false, false}),
+				new ExecutionData(2, "B", new boolean[]{false, false})));
+		assertThat(delta.getContents()).hasSize(1);
+		assertThat(delta.get(1).getProbes()).containsExactly(true, false, false);
+
+		delta = accumulator.extractDelta(createStore(
+				new ExecutionData(1, "A", new boolean[]{true, false, true}),
+				new ExecutionData(2, "B", new boolean[]{false, true})));
+		assertThat(delta.get(1).getProbes()).containsExactly(false, false, true);
+		assertThat(delta.get(2).getProbes()).containsExactly(false, true);
+
+		delta = accumulator.extractDelta(createStore(
+				new ExecutionData(1, "A", new boolean[]{true, false, true})));
+		assertThat(delta.getContents()).isEmpty();
+	}
+
+	/** Tests that merging the deltas on the receiving side restores the complete coverage. */
+	@Test
+	public void testMergingDeltasRestoresCoverage() {
+		ExecutionDataAccumulator sender = new ExecutionDataAccumulator();
+		ExecutionDataAccumulator receiver = new ExecutionDataAccumulator();
+
+		receiver.add(sender.extractDelta(createStore(new ExecutionData(1, "A", new boolean[]{true, false, false}))));
+		receiver.add(sender.extractDelta(createStore(new ExecutionData(1, "A", new boolean[]{false, true, false}),
+				new ExecutionData(2, "B", new boolean[]{true}))));
+
+		ExecutionDataStore coverage = receiver.getAccumulated();
+		assertThat(coverage.get(1).getProbes()).containsExactly(true, true, false);
+		assertThat(coverage.get(2).getProbes()).containsExactly(true);
+		assertThat(sender.getAccumulated().get(1).getProbes()).containsExactly(true, true, false);
+	}
+
+	/** Creates a store with the given execution data. */
+	private static ExecutionDataStore createStore(ExecutionData... executionData) {
+		ExecutionDataStore store = new ExecutionDataStore();
+		for (ExecutionData data : executionData) {
+			store.put(data);
+		}
+		return store;
+	}
+}
@@ -0,0 +1,100 @@
+package com.teamscale.report.testwise;
+
+import com.google.gson.Gson;
+import com.teamscale.report.ReportUtils;
+import com.teamscale.report.testwise.model.ETestExecutionResult;
+import com.teamscale.report.testwise.model.FileCoverage;
+import com.teamscale.report.testwise.model.PathCoverage;
+import com.teamscale.report.testwise.model.TestInfo;
+import com.teamscale.report.testwise.model.TestwiseCoverageReport;
+import org.conqat.lib.commons.filesystem.FileSystemUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests the {@link TestwiseCoverageReportWriter}. */
+public class TestwiseCoverageReportWriterTest {
+
+	/** Folder for the written reports. */
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/** Ensures that the pretty printed report is identical to the serialized report object. */
+	@Test
+	public void testPrettyPrintedReportEqualsSerializedReport() throws Exception {
+		TestwiseCoverageReport report = createReport();
+		File reportFile = new File(temporaryFolder.getRoot(), "nested/report.json");
+
+		writeReport(reportFile, report, true, false);
+
+		assertThat(FileSystemUtils.readFileUTF8(reportFile)).isEqualTo(ReportUtils.getReportAsString(report));
+	}
+
+	/** Ensures that compact, gzipped reports can be read again. */
+	@Test
+	public void testCompactGzippedReport() throws Exception {
+		TestwiseCoverageReport report = createReport();
+		File reportFile = temporaryFolder.newFile("report.json.gz");
+
+		writeReport(reportFile, report, false, true);
+
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		try (InputStream input = new GZIPInputStream(new FileInputStream(reportFile))) {
+			byte[] buffer = new byte[1024];
+			int length;
+			while ((length = input.read(buffer)) != -1) {
+				json.write(buffer, 0, length);
+			}
+		}
+		assertThat(json.toString(FileSystemUtils.UTF8_ENCODING)).isEqualTo(new Gson().toJson(report))
+				.doesNotContain("\n");
+	}
+
+	/** Ensures that a report that has not been finished is deleted instead of being left truncated. */
+	@Test
+	public void testUnfinishedReportIsDeleted() throws Exception {
+		TestwiseCoverageReport report = createReport();
+		File reportFile = temporaryFolder.newFile("report.json");
+
+		try (TestwiseCoverageReportWriter writer = new TestwiseCoverageReportWriter(reportFile, true, false)) {
+			writer.writeTestInfo(report.tests.get(0));
+		}
+
+		assertThat(reportFile).doesNotExist();
+	}
+
+	/** Writes the tests of the given report with a {@link TestwiseCoverageReportWriter}. */
+	private static void writeReport(File reportFile, TestwiseCoverageReport report, boolean prettyPrint,
+									boolean gzip) throws Exception {
+		try (TestwiseCoverageReportWriter writer = new TestwiseCoverageReportWriter(reportFile, prettyPrint, gzip)) {
+			for (TestInfo testInfo : report.tests) {
+				writer.writeTestInfo(testInfo);
+			}
+			writer.finish();
+		}
+	}
+
+	/** Creates a report with two tests. */
+	private static TestwiseCoverageReport createReport() {
+		TestwiseCoverageReport report = new TestwiseCoverageReport();
+		TestInfo first = new TestInfo("test/First", "src/First.java", "1", 0.5, ETestExecutionResult.PASSED, null);
+		first.paths.add(new PathCoverage("com/example",
+				Arrays.asList(new FileCoverage("A.java", "1-3,7"), new FileCoverage("B.java", "12"))));
+		report.tests.add(first);
+		TestInfo second = new TestInfo("test/Second", "src/Second.java", "2", 1.0, ETestExecutionResult.FAILURE,
+				"message with \"quotes\" and <html>");
+		second.paths.add(new PathCoverage("", Collections.singletonList(new FileCoverage("C.java", "4-5"))));
+		report.tests.add(second);
+		return report;
+	}
+}
@@ -14,10 +14,13 @@ import com.teamscale.report.util.ILogger;
 import org.assertj.core.api.Assertions;
 import org.conqat.lib.commons.filesystem.FileSystemUtils;
 import org.conqat.lib.commons.test.CCSMTestCaseBase;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 
 import static org.conqat.lib.commons.collections.CollectionUtils.emptyList;
@@ -26,6 +29,10 @@ import static org.mockito.Mockito.mock;
 /** Tests for the {@link JaCoCoTestwiseReportGenerator} class. */
 public class JaCoCoTestwiseReportGeneratorTest extends CCSMTestCaseBase {
 
+	/** Folder for the probes cache files. */
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	/** Tests that the {@link JaCoCoTestwiseReportGenerator} produces the expected output. */
 	@Test
 	public void testSmokeTestTestwiseReportGeneration() throws Exception {
@@ -42,15 +49,75 @@ public class JaCoCoTestwiseReportGeneratorTest extends CCSMTestCaseBase {
 		Assertions.assertThat(report).isEqualTo(expected);
 	}
 
+	/** Tests that analyzing the class files in parallel produces the same output as the sequential analysis. */
+	@Test
+	public void testParallelTestwiseReportGeneration() throws Exception {
+		String report = runGenerator("jacoco/cqddl/classes.zip", "jacoco/cqddl/coverage.exec", 4);
+		String expected = runGenerator("jacoco/cqddl/classes.zip", "jacoco/cqddl/coverage.exec", 1);
+		Assertions.assertThat(report).isEqualTo(expected);
+
+		report = runGenerator("jacoco/sample/classes.zip", "jacoco/sample/coverage.exec", 4);
+		expected = FileSystemUtils.readFileUTF8(useTestFile("jacoco/sample/report.json.expected"));
+		Assertions.assertThat(report).isEqualTo(expected);
+	}
+
+	/** Tests that converting multiple execution data files concurrently merges the coverage of all files. */
+	@Test
+	public void testParallelConversionOfMultipleFiles() throws Exception {
+		File classFileFolder = useTestFile("jacoco/cqddl/classes.zip");
+		File executionDataFile = useTestFile("jacoco/cqddl/coverage.exec");
+		AntPatternIncludeFilter includeFilter = new AntPatternIncludeFilter(emptyList(), emptyList());
+		TestwiseCoverage testwiseCoverage;
+		try (JaCoCoTestwiseReportGenerator generator = new JaCoCoTestwiseReportGenerator(
+				Collections.singletonList(classFileFolder), includeFilter, EDuplicateClassFileBehavior.IGNORE, 4, null,
+				mock(ILogger.class))) {
+			testwiseCoverage = generator.convert(Arrays.asList(executionDataFile, executionDataFile, executionDataFile));
+		}
+
+		String expected = FileSystemUtils.readFileUTF8(useTestFile("jacoco/cqddl/report.json.expected"));
+		Assertions.assertThat(ReportUtils.getReportAsString(generateDummyReportFrom(testwiseCoverage)))
+				.isEqualToNormalizingWhitespace(expected);
+	}
+
+	/** Tests that classes loaded from a probes cache file produce the same output as freshly analyzed classes. */
+	@Test
+	public void testTestwiseReportGenerationWithProbesCacheFile() throws Exception {
+		File probesCacheFile = new File(temporaryFolder.getRoot(), "probes.cache");
+		String expected = FileSystemUtils.readFileUTF8(useTestFile("jacoco/cqddl/report.json.expected"));
+
+		String report = runGenerator("jacoco/cqddl/classes.zip", "jacoco/cqddl/coverage.exec", 1, probesCacheFile);
+		Assertions.assertThat(report).isEqualToNormalizingWhitespace(expected);
+		File generationFile = new File(temporaryFolder.getRoot(), "probes.cache.0");
+		long cacheFileSize = generationFile.length();
+		Assertions.assertThat(cacheFileSize).isGreaterThan(0);
+
+		report = runGenerator("jacoco/cqddl/classes.zip", "jacoco/cqddl/coverage.exec", 1, probesCacheFile);
+		Assertions.assertThat(report).isEqualToNormalizingWhitespace(expected);
+		Assertions.assertThat(generationFile.length()).isEqualTo(cacheFileSize);
+	}
+
 	/** Runs the report generator. */
 	private String runGenerator(String testDataFolder, String execFileName) throws Exception {
+		return runGenerator(testDataFolder, execFileName, 1);
+	}
+
+	/** Runs the report generator with the given parallelism. */
+	private String runGenerator(String testDataFolder, String execFileName, int parallelism) throws Exception {
+		return runGenerator(testDataFolder, execFileName, parallelism, null);
+	}
+
+	/** Runs the report generator with the given parallelism and probes cache file. */
+	private String runGenerator(String testDataFolder, String execFileName, int parallelism,
+								File probesCacheFile) throws Exception {
 		File classFileFolder = useTestFile(testDataFolder);
 		AntPatternIncludeFilter includeFilter = new AntPatternIncludeFilter(emptyList(), emptyList());
-		TestwiseCoverage testwiseCoverage = new JaCoCoTestwiseReportGenerator(
+		try (JaCoCoTestwiseReportGenerator generator = new JaCoCoTestwiseReportGenerator(
 				Collections.singletonList(classFileFolder),
-				includeFilter, EDuplicateClassFileBehavior.IGNORE,
-				mock(ILogger.class)).convert(useTestFile(execFileName));
-		return ReportUtils.getReportAsString(generateDummyReportFrom(testwiseCoverage));
+				includeFilter, EDuplicateClassFileBehavior.IGNORE, parallelism, probesCacheFile,
+				mock(ILogger.class))) {
+			TestwiseCoverage testwiseCoverage = generator.convert(useTestFile(execFileName));
+			return ReportUtils.getReportAsString(generateDummyReportFrom(testwiseCoverage));
+		}
 	}
 
 	/** Generates a dummy coverage report object that wraps the given {@link TestwiseCoverage}. */
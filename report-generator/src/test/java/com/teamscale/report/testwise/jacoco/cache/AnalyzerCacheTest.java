@@ -0,0 +1,82 @@
+package com.teamscale.report.testwise.jacoco.cache;
+
+import com.teamscale.report.EDuplicateClassFileBehavior;
+import com.teamscale.report.util.ILogger;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.internal.InputStreams;
+import org.jacoco.core.internal.data.CRC64;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/** Tests the {@link AnalyzerCache} class. */
+public class AnalyzerCacheTest {
+
+	/** Tests that a class whose analysis fails is not kept in the cache with an incomplete lookup. */
+	@Test
+	public void brokenClassFileIsNotCached() throws Exception {
+		byte[] classFile = readClassFile();
+		byte[] brokenClassFile = Arrays.copyOf(classFile, classFile.length - 20);
+		long classId = CRC64.classId(brokenClassFile);
+		ProbesCache probesCache = new ProbesCache(mock(ILogger.class), EDuplicateClassFileBehavior.IGNORE);
+		AnalyzerCache analyzer = new AnalyzerCache(probesCache, location -> true, mock(ILogger.class));
+
+		assertThatThrownBy(() -> analyzer.analyzeClass(brokenClassFile, "Broken.class"))
+				.isInstanceOf(IOException.class);
+
+		assertThat(probesCache.containsClassId(classId)).isFalse();
+		ExecutionData executionData = new ExecutionData(classId, "com/teamscale/report/testwise/jacoco/cache/AnalyzerCacheTest",
+				new boolean[]{true});
+		assertThat(probesCache.getCoverage(executionData, location -> false)).isNull();
+	}
+
+	/** Tests that a class whose analysis fails is not reported as a non-identical duplicate of the valid class. */
+	@Test
+	public void brokenClassFileIsNoDuplicate() throws Exception {
+		byte[] classFile = readClassFile();
+		byte[] brokenClassFile = Arrays.copyOf(classFile, classFile.length - 20);
+		ProbesCache probesCache = new ProbesCache(mock(ILogger.class), EDuplicateClassFileBehavior.FAIL);
+		AnalyzerCache analyzer = new AnalyzerCache(probesCache, location -> true, mock(ILogger.class));
+
+		analyzer.analyzeClass(classFile, "AnalyzerCacheTest.class");
+		assertThatThrownBy(() -> analyzer.analyzeClass(brokenClassFile, "Broken.class"))
+				.isInstanceOf(IOException.class);
+
+		probesCache.handleDuplicateClasses();
+	}
+
+	/**
+	 * Tests that an identical copy of a class file is still analyzed and kept if the analysis of the first copy
+	 * started earlier but fails, e.g. because that copy was corrupt when it was read.
+	 */
+	@Test
+	public void identicalClassFileIsKeptIfAnalysisOfFirstCopyFails() throws Exception {
+		byte[] classFile = readClassFile();
+		long classId = CRC64.classId(classFile);
+		ProbesCache probesCache = new ProbesCache(mock(ILogger.class), EDuplicateClassFileBehavior.FAIL);
+		AnalyzerCache analyzer = new AnalyzerCache(probesCache, location -> true, mock(ILogger.class));
+
+		// The analysis of the first copy started but never finishes successfully
+		probesCache.createClass("com/teamscale/report/testwise/jacoco/cache/AnalyzerCacheTest");
+		analyzer.analyzeClass(classFile, "AnalyzerCacheTest.class");
+
+		assertThat(probesCache.containsClassId(classId)).isTrue();
+		ExecutionData executionData = new ExecutionData(classId, "com/teamscale/report/testwise/jacoco/cache/AnalyzerCacheTest",
+				new boolean[]{true});
+		assertThat(probesCache.getCoverage(executionData, location -> false)).isNotNull();
+		probesCache.handleDuplicateClasses();
+	}
+
+	/** Returns the class file of this test, which serves as an arbitrary valid class file. */
+	private static byte[] readClassFile() throws IOException {
+		try (InputStream input = AnalyzerCacheTest.class.getResourceAsStream("AnalyzerCacheTest.class")) {
+			return InputStreams.readFully(input);
+		}
+	}
+}
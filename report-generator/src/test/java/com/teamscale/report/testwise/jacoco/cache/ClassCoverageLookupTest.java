@@ -0,0 +1,59 @@
+package com.teamscale.report.testwise.jacoco.cache;
+
+import com.teamscale.report.testwise.model.builder.FileCoverageBuilder;
+import com.teamscale.report.util.ILogger;
+import org.conqat.lib.commons.collections.CollectionUtils;
+import org.jacoco.core.data.ExecutionData;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/** Tests the {@link ClassCoverageLookup} class. */
+public class ClassCoverageLookupTest {
+
+	/** Tests that only the lines of executed probes are reported as covered. */
+	@Test
+	public void onlyLinesOfExecutedProbesAreCovered() throws Exception {
+		ClassCoverageLookup lookup = new ClassCoverageLookup("com/company/Example");
+		lookup.setSourceFileName("Example.java");
+		lookup.addProbe(2, CollectionUtils.asHashSet(10, 12, 11, 15));
+		lookup.addProbe(0, CollectionUtils.asHashSet(3));
+		lookup.addProbe(1, CollectionUtils.asHashSet(4, 5));
+		lookup.setTotalProbeCount(4);
+
+		ExecutionData executionData = new ExecutionData(1, "com/company/Example",
+				new boolean[]{true, false, true, true});
+		FileCoverageBuilder fileCoverage = lookup.getFileCoverage(executionData, mock(ILogger.class));
+
+		assertEquals("com/company", fileCoverage.getPath());
+		assertEquals("Example.java", fileCoverage.getFileName());
+		assertEquals("3,10-12,15", fileCoverage.computeCompactifiedRangesAsString());
+	}
+
+	/** Tests that probes without any lines or outside of methods do not produce coverage. */
+	@Test
+	public void probesWithoutLinesAreIgnored() throws Exception {
+		ClassCoverageLookup lookup = new ClassCoverageLookup("Example");
+		lookup.setSourceFileName("Example.java");
+		lookup.addProbe(1, CollectionUtils.asHashSet(-1));
+		lookup.setTotalProbeCount(2);
+
+		ExecutionData executionData = new ExecutionData(1, "Example", new boolean[]{true, true});
+		FileCoverageBuilder fileCoverage = lookup.getFileCoverage(executionData, mock(ILogger.class));
+
+		assertTrue(fileCoverage.isEmpty());
+	}
+
+	/** Tests that execution data with less probes than the analyzed class is rejected. */
+	@Test(expected = CoverageGenerationException.class)
+	public void mismatchingProbeCountIsRejected() throws Exception {
+		ClassCoverageLookup lookup = new ClassCoverageLookup("Example");
+		lookup.setSourceFileName("Example.java");
+		lookup.addProbe(0, CollectionUtils.asHashSet(1));
+		lookup.setTotalProbeCount(2);
+
+		lookup.getFileCoverage(new ExecutionData(1, "Example", new boolean[]{true}), mock(ILogger.class));
+	}
+}
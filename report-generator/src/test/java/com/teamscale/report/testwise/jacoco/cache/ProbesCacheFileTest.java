@@ -0,0 +1,165 @@
+package com.teamscale.report.testwise.jacoco.cache;
+
+import com.teamscale.report.util.ILogger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/** Tests the {@link ProbesCacheFile} class. */
+public class ProbesCacheFileTest {
+
+	/** Folder for the cache files. */
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/** Tests that a stored lookup is read again with the same content. */
+	@Test
+	public void lookupIsReadAgain() throws Exception {
+		File file = new File(temporaryFolder.getRoot(), "probes.cache");
+		ProbesCacheFile cacheFile = new ProbesCacheFile(file, mock(ILogger.class));
+		cacheFile.add(1, createLookup("A"));
+		cacheFile.save();
+
+		ClassCoverageLookup lookup = new ProbesCacheFile(file, mock(ILogger.class)).read(1);
+
+		assertThat(lookup.getClassName()).isEqualTo("com/example/A");
+		assertThat(lookup.getSourceFileName()).isEqualTo("A.java");
+		assertThat(lookup.getProbeRangeOffsets()).containsExactly(0, 2, 2);
+		assertThat(lookup.getProbeLineRanges()).containsExactly(3, 5);
+		assertThat(lookup.getUnmappedProbes()).containsExactly(false, true);
+	}
+
+	/** Tests that conversions that opened the file at the same time do not overwrite each other's classes. */
+	@Test
+	public void concurrentConversionsKeepAllClasses() throws Exception {
+		File file = new File(temporaryFolder.getRoot(), "probes.cache");
+		ProbesCacheFile first = new ProbesCacheFile(file, mock(ILogger.class));
+		ProbesCacheFile second = new ProbesCacheFile(file, mock(ILogger.class));
+		first.add(1, createLookup("A"));
+		second.add(2, createLookup("B"));
+		second.add(1, createLookup("A"));
+
+		first.save();
+		long sizeAfterFirstSave = getGenerationFile(0).length();
+		second.save();
+
+		ProbesCacheFile reopened = new ProbesCacheFile(file, mock(ILogger.class));
+		assertThat(reopened.read(1).getClassName()).isEqualTo("com/example/A");
+		assertThat(reopened.read(2).getClassName()).isEqualTo("com/example/B");
+		// A was not stored twice
+		assertThat(getGenerationFile(0).length()).isLessThan(2 * sizeAfterFirstSave);
+	}
+
+	/** Tests that a record with a wrong checksum is ignored and replaced once the class was analyzed again. */
+	@Test
+	public void corruptRecordIsIgnored() throws Exception {
+		File file = new File(temporaryFolder.getRoot(), "probes.cache");
+		ProbesCacheFile cacheFile = new ProbesCacheFile(file, mock(ILogger.class));
+		cacheFile.add(1, createLookup("A"));
+		cacheFile.save();
+		try (RandomAccessFile content = new RandomAccessFile(getGenerationFile(0), "rw")) {
+			content.seek(content.length() - 1);
+			content.write(42);
+		}
+
+		cacheFile = new ProbesCacheFile(file, mock(ILogger.class));
+		assertThat(cacheFile.read(1)).isNull();
+		cacheFile.add(1, createLookup("A"));
+		cacheFile.save();
+
+		assertThat(new ProbesCacheFile(file, mock(ILogger.class)).read(1).getProbeLineRanges()).containsExactly(3, 5);
+	}
+
+	/** Tests that the file is compacted to the classes used by the conversion once it exceeds its maximum size. */
+	@Test
+	public void fileIsCompactedWhenExceedingMaximumSize() throws Exception {
+		File file = new File(temporaryFolder.getRoot(), "probes.cache");
+		ProbesCacheFile cacheFile = new ProbesCacheFile(file, mock(ILogger.class));
+		cacheFile.add(1, createLookup("A"));
+		cacheFile.add(2, createLookup("B"));
+		cacheFile.save();
+		long size = getGenerationFile(0).length();
+
+		cacheFile = new ProbesCacheFile(file, mock(ILogger.class), size + 10);
+		assertThat(cacheFile.read(1)).isNotNull();
+		cacheFile.add(3, createLookup("C"));
+		cacheFile.save();
+
+		ProbesCacheFile reopened = new ProbesCacheFile(file, mock(ILogger.class));
+		assertThat(reopened.read(1).getClassName()).isEqualTo("com/example/A");
+		assertThat(reopened.read(2)).isNull();
+		assertThat(reopened.read(3).getClassName()).isEqualTo("com/example/C");
+		assertThat(getGenerationFile(1).length()).isEqualTo(size);
+		assertThat(temporaryFolder.getRoot().list()).containsExactlyInAnyOrder("probes.cache.1", "probes.cache.lock");
+	}
+
+	/**
+	 * Tests that a conversion that saves after another conversion compacted the file merges its used classes into the
+	 * compacted generation instead of compacting it again to its own used classes.
+	 */
+	@Test
+	public void saveAfterConcurrentCompactionKeepsClassesOfBothConversions() throws Exception {
+		File file = new File(temporaryFolder.getRoot(), "probes.cache");
+		ProbesCacheFile cacheFile = new ProbesCacheFile(file, mock(ILogger.class));
+		cacheFile.add(1, createLookup("A"));
+		cacheFile.add(2, createLookup("B"));
+		cacheFile.save();
+		long size = getGenerationFile(0).length();
+
+		ProbesCacheFile first = new ProbesCacheFile(file, mock(ILogger.class), size + 10);
+		ProbesCacheFile second = new ProbesCacheFile(file, mock(ILogger.class), size + 10);
+		assertThat(first.read(1)).isNotNull();
+		assertThat(second.read(2)).isNotNull();
+		second.add(3, createLookup("C"));
+		second.save();
+		assertThat(getGenerationFile(1)).exists();
+		first.add(4, createLookup("D"));
+		first.save();
+
+		ProbesCacheFile reopened = new ProbesCacheFile(file, mock(ILogger.class));
+		assertThat(reopened.read(1).getClassName()).isEqualTo("com/example/A");
+		assertThat(reopened.read(2).getClassName()).isEqualTo("com/example/B");
+		assertThat(reopened.read(3).getClassName()).isEqualTo("com/example/C");
+		assertThat(reopened.read(4).getClassName()).isEqualTo("com/example/D");
+	}
+
+	/**
+	 * Tests that a file written by a different version is ignored and replaced by a new generation instead of being
+	 * overwritten, since other conversions may still map it.
+	 */
+	@Test
+	public void fileOfDifferentVersionIsReplacedByNewGeneration() throws Exception {
+		File file = new File(temporaryFolder.getRoot(), "probes.cache");
+		try (DataOutputStream output = new DataOutputStream(new FileOutputStream(getGenerationFile(0)))) {
+			output.writeInt(0x54535043);
+			output.writeInt(2);
+		}
+
+		ProbesCacheFile cacheFile = new ProbesCacheFile(file, mock(ILogger.class));
+		assertThat(cacheFile.read(1)).isNull();
+		cacheFile.add(1, createLookup("A"));
+		cacheFile.save();
+
+		assertThat(new ProbesCacheFile(file, mock(ILogger.class)).read(1).getClassName()).isEqualTo("com/example/A");
+		assertThat(temporaryFolder.getRoot().list()).containsExactlyInAnyOrder("probes.cache.1", "probes.cache.lock");
+	}
+
+	/** Returns the file of the given generation of the cache file "probes.cache". */
+	private File getGenerationFile(int generation) {
+		return new File(temporaryFolder.getRoot(), "probes.cache." + generation);
+	}
+
+	/** Creates a lookup for a class with two probes, of which the second is unmapped. */
+	private static ClassCoverageLookup createLookup(String className) {
+		return new ClassCoverageLookup("com/example/" + className, className + ".java", new int[]{0, 2, 2},
+				new int[]{3, 5}, new boolean[]{false, true});
+	}
+}
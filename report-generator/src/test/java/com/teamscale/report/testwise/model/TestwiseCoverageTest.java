@@ -0,0 +1,66 @@
+package com.teamscale.report.testwise.model;
+
+import com.teamscale.report.testwise.model.builder.FileCoverageBuilder;
+import com.teamscale.report.testwise.model.builder.TestCoverageBuilder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests the {@link TestwiseCoverage} class. */
+public class TestwiseCoverageTest {
+
+	/** The number of threads that add coverage concurrently. */
+	private static final int THREAD_COUNT = 8;
+
+	/** The number of tests for which coverage is added. */
+	private static final int TEST_COUNT = 50;
+
+	/** Tests that coverage of the same tests and files added concurrently is merged without losing any lines. */
+	@Test
+	public void concurrentAddMergesAllCoverage() throws Exception {
+		TestwiseCoverage testwiseCoverage = new TestwiseCoverage();
+		List<Callable<Void>> producers = new ArrayList<>();
+		for (int thread = 0; thread < THREAD_COUNT; thread++) {
+			int line = thread + 1;
+			producers.add(() -> {
+				for (int test = 0; test < TEST_COUNT; test++) {
+					TestCoverageBuilder testCoverage = new TestCoverageBuilder("test" + test);
+					testCoverage.add(createFileCoverage("Shared.java", line));
+					testCoverage.add(createFileCoverage("Own" + line + ".java", line));
+					testwiseCoverage.add(testCoverage);
+				}
+				return null;
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+		try {
+			for (Future<Void> result : executor.invokeAll(producers)) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(TEST_COUNT, testwiseCoverage.getTests().size());
+		for (TestCoverageBuilder testCoverage : testwiseCoverage.getTests()) {
+			List<FileCoverage> files = testCoverage.getPaths().get(0).getFiles();
+			assertEquals(THREAD_COUNT + 1, files.size());
+			assertEquals("1-" + THREAD_COUNT, files.get(files.size() - 1).coveredLines);
+		}
+	}
+
+	/** Creates coverage of a single line. */
+	private static FileCoverageBuilder createFileCoverage(String fileName, int line) {
+		FileCoverageBuilder fileCoverage = new FileCoverageBuilder("com/example", fileName);
+		fileCoverage.addLine(line);
+		return fileCoverage;
+	}
+}
@@ -35,6 +35,35 @@ public class FileCoverageBuilderTest {
 		assertEquals("1-4,7-10,12-14", fileCoverage.computeCompactifiedRangesAsString());
 	}
 
+	/** Tests the merge of line ranges that span multiple words of the underlying bit set. */
+	@Test
+	public void mergeOfLargeLineNumbers() {
+		FileCoverageBuilder fileCoverage = new FileCoverageBuilder("path", "file");
+		fileCoverage.addLineRange(60, 70);
+		fileCoverage.addLine(1000);
+
+		FileCoverageBuilder otherFileCoverage = new FileCoverageBuilder("path", "file");
+		otherFileCoverage.addLineRange(71, 130);
+		otherFileCoverage.addLine(999);
+		fileCoverage.merge(otherFileCoverage);
+
+		assertEquals("60-130,999-1000", fileCoverage.computeCompactifiedRangesAsString());
+	}
+
+	/** Tests that non-positive lines, e.g. JaCoCo's unknown line, are ignored. */
+	@Test
+	public void nonPositiveLinesAreIgnored() {
+		FileCoverageBuilder fileCoverage = new FileCoverageBuilder("path", "file");
+		fileCoverage.addLine(-1);
+		fileCoverage.addLine(0);
+		fileCoverage.addLines(CollectionUtils.asHashSet(-1, 5));
+		fileCoverage.addLineRange(-3, 2);
+		assertEquals("1-2,5", fileCoverage.computeCompactifiedRangesAsString());
+
+		List<LineRange> result = FileCoverageBuilder.compactifyToRanges(CollectionUtils.asHashSet(-1, 0, 3));
+		assertEquals("[3]", result.toString());
+	}
+
 	/** Tests that two {@link FileCoverageBuilder} objects from different files throws an exception. */
 	@Test(expected = AssertionError.class)
 	public void mergeDoesNotAllowMergeOfTwoDifferentFiles() {
@@ -7,6 +7,7 @@ import com.teamscale.config.TeamscaleTaskExtension
 import com.teamscale.report.EDuplicateClassFileBehavior
 import com.teamscale.report.ReportUtils
 import com.teamscale.report.testwise.ETestArtifactFormat
+import com.teamscale.report.testwise.TestwiseCoverageReportWriter
 import com.teamscale.report.testwise.closure.ClosureTestwiseCoverageGenerator
 import com.teamscale.report.testwise.jacoco.JaCoCoTestwiseReportGenerator
 import com.teamscale.report.testwise.model.TestExecution
@@ -102,8 +103,12 @@ open class TeamscaleReportTask : DefaultTask() {
         )
 
         logger.info("Generating coverage reports...")
-        for ((reportConfig, artifacts) in reportsToArtifacts.entries) {
-            generateTestwiseCoverageReport(reportConfig, artifacts, jaCoCoTestwiseReportGenerator)
+        try {
+            for ((reportConfig, artifacts) in reportsToArtifacts.entries) {
+                generateTestwiseCoverageReport(reportConfig, artifacts, jaCoCoTestwiseReportGenerator)
+            }
+        } finally {
+            jaCoCoTestwiseReportGenerator.close()
         }
     }
 
@@ -125,9 +130,11 @@ open class TeamscaleReportTask : DefaultTask() {
 
         logger.info("Merging report with ${testDetails.size} Details/${testwiseCoverage.tests.size} Coverage/${testExecutions.size} Results")
 
-        val report = TestwiseCoverageReportBuilder.createFrom(testDetails, testwiseCoverage.tests, testExecutions)
         logger.info("Writing report to ${reportConfig.reportFile}")
-        ReportUtils.writeReportToFile(reportConfig.reportFile, report)
+        TestwiseCoverageReportWriter(reportConfig.reportFile, /* prettyPrint = */ true, /* gzip = */ false).use { writer ->
+            TestwiseCoverageReportBuilder.writeTo(writer, testDetails, testwiseCoverage.tests, testExecutions)
+            writer.finish()
+        }
 
         if (reportConfig.upload) {
             uploadTask.reports.add(reportConfig)
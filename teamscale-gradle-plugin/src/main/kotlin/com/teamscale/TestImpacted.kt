@@ -2,6 +2,7 @@ package com.teamscale
 
 import com.teamscale.config.TeamscaleTaskExtension
 import groovy.lang.Closure
+import okhttp3.HttpUrl
 import org.gradle.api.Action
 import org.gradle.api.GradleException
 import org.gradle.api.file.FileCollection
@@ -150,7 +151,12 @@ open class TestImpacted : Test() {
         jvmArgumentProviders.removeIf { it.javaClass.name.contains("JacocoPluginExtension") }
 
         taskExtension.agent.localAgent?.let {
-            jvmArgs(it.getJvmArgs())
+            if (isForkingInParallel) {
+                logger.info("Running $maxParallelForks test JVMs in parallel. Their agents listen on ephemeral ports instead of ${it.url.port()}.")
+                jvmArgs(it.getJvmArgs(httpServerPort = 0))
+            } else {
+                jvmArgs(it.getJvmArgs())
+            }
         }
 
         val reportConfig = taskExtension.getMergedReports()
@@ -166,6 +172,26 @@ open class TestImpacted : Test() {
         super.executeTests()
     }
 
+    /**
+     * Whether several test JVMs run at the same time. Each of them then runs its own local agent, which the
+     * impacted test engine in the same JVM calls via JMX. The agents write to different exec files, which are
+     * merged by the [TeamscaleReportTask].
+     */
+    private val isForkingInParallel
+        @Internal
+        get() = maxParallelForks > 1
+
+    /**
+     * Returns the URLs of the agents the impacted test engine connects to. The local agent is left out if it
+     * listens on an ephemeral port.
+     */
+    private fun getAgentUrls(): List<HttpUrl> {
+        val agents = taskExtension.agent.getAllAgents().filter {
+            !isForkingInParallel || it != taskExtension.agent.localAgent
+        }
+        return agents.map { it.url }
+    }
+
     private fun writeEngineProperty(name: String, value: String?) {
         if (value != null) {
             systemProperties["teamscale.test.impacted.$name"] = value
@@ -182,7 +208,8 @@ open class TestImpacted : Test() {
         writeEngineProperty("endCommit", endCommit.toString())
         writeEngineProperty("baseline", baseline?.toString())
         writeEngineProperty("reportDirectory", reportOutputDir.absolutePath)
-        writeEngineProperty("agentsUrls", taskExtension.agent.getAllAgents().map { it.url }.joinToString(","))
+        writeEngineProperty("agentsUrls", getAgentUrls().joinToString(","))
+        writeEngineProperty("inProcessAgent", (isForkingInParallel && taskExtension.agent.localAgent != null).toString())
         writeEngineProperty("runImpacted", runImpacted.toString())
         writeEngineProperty("runAllTests", runAllTests.toString())
         writeEngineProperty("engines", includeEngines.joinToString(","))
@@ -75,8 +75,13 @@ class AgentConfiguration(val project: Project, val jacocoExtension: JacocoTaskEx
 
     inner class TeamscaleAgent(val url: HttpUrl) {
 
-        /** Builds the jvm argument to start the impacted test executor. */
+        /**
+         * Builds the jvm argument to start the impacted test executor.
+         * @param httpServerPort The port of the agent's http server. 0 lets each test JVM pick an ephemeral port,
+         *                       which is required if several test JVMs run in parallel.
+         */
         fun getJvmArgs(
+            httpServerPort: Int = url.port()
         ): String {
             val builder = StringBuilder()
             val argument = ArgumentAppender(builder)
@@ -86,7 +91,7 @@ class AgentConfiguration(val project: Project, val jacocoExtension: JacocoTaskEx
             builder.append(agentJar.canonicalPath)
             builder.append("=")
 
-            appendArguments(argument, jacocoExtension)
+            appendArguments(argument, jacocoExtension, httpServerPort)
 
             return builder.toString()
         }
@@ -97,12 +102,13 @@ class AgentConfiguration(val project: Project, val jacocoExtension: JacocoTaskEx
          */
         private fun appendArguments(
             argument: ArgumentAppender,
-            jacocoExtension: JacocoTaskExtension
+            jacocoExtension: JacocoTaskExtension,
+            httpServerPort: Int
         ) {
             argument.append("out", destination)
             argument.append("includes", jacocoExtension.includes)
             argument.append("excludes", jacocoExtension.excludes)
-            argument.append("http-server-port", url.port())
+            argument.append("http-server-port", httpServerPort)
         }
     }
 }